@@ -15,6 +15,7 @@ package org.mmtk.harness.vm;
 import static org.mmtk.utility.Constants.INSTANCE_FIELD;
 
 import org.mmtk.harness.sanity.Sanity;
+import org.mmtk.utility.Log;
 import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.*;
@@ -615,4 +616,10 @@ public class Barriers extends org.mmtk.vm.Barriers {
     dst[index] = value;
   }
 
+  @Override
+  public void writeLocation(Word metaData, int mode) {
+    Log.write(mode == INSTANCE_FIELD ? "field " : "array ");
+    if (metaData != null) Log.write(metaData);
+  }
+
 }
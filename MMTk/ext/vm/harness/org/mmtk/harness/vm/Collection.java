@@ -63,6 +63,11 @@ public class Collection extends org.mmtk.vm.Collection {
     Clock.start();
   }
 
+  @Override
+  public void bindToNumaNode(int node) {
+    // Simulated threads have no affinity
+  }
+
   /**
    * @return The default number of collector threads to use.
    *
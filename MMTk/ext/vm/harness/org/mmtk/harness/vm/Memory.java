@@ -140,6 +140,24 @@ public class Memory extends org.mmtk.vm.Memory {
     SimulatedMemory.zero(start, len);
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public int numaNodes() {
+    return 1;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int currentNumaNode() {
+    return 0;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void numaBind(Address start, Extent len, int node) {
+    // Simulated memory has no locality
+  }
+
   /** {@inheritDoc} */
   @Override
   public void dumpMemory(Address start, int beforeBytes, int afterBytes) {
@@ -522,6 +522,11 @@ public final class ObjectModel extends org.mmtk.vm.ObjectModel {
     return getString(ref).getBytes();
   }
 
+  @Override
+  public void prefetchTypeInformation(ObjectReference object) {
+    // Prefetching has no effect on the harness heap
+  }
+
   @Override
   public boolean isArray(ObjectReference object) {
     Assert.notImplemented();
@@ -16,10 +16,13 @@ import static org.jikesrvm.runtime.UnboxedSizeConstants.LOG_BYTES_IN_ADDRESS;
 import static org.mmtk.utility.Constants.ARRAY_ELEMENT;
 import static org.mmtk.utility.Constants.INSTANCE_FIELD;
 
+import org.jikesrvm.classloader.FieldReference;
+import org.jikesrvm.classloader.MemberReference;
 import org.jikesrvm.classloader.RVMType;
 import org.jikesrvm.objectmodel.ObjectModel;
 import org.jikesrvm.objectmodel.TIB;
 import org.jikesrvm.runtime.Magic;
+import org.mmtk.utility.Log;
 import org.mmtk.vm.VM;
 
 import org.vmmagic.unboxed.*;
@@ -372,13 +375,15 @@ public class Barriers extends org.mmtk.vm.Barriers {
    * @param objref The object that has the reference field
    * @param value The value that the slot will be updated to
    * @param offset The offset from the ref
-   * @param location The index of the FieldReference
+   * @param location The index of the FieldReference (for an array
+   * element this may instead identify the array's type, and is ignored)
    * @param mode The context in which the write is occurring
    */
   @Inline
   @Override
   public final void objectReferenceWrite(ObjectReference objref, ObjectReference value, Word offset, Word location, int mode) {
-    Magic.setObjectAtOffset(objref.toObject(), offset.toOffset(), value.toObject(), location.toInt());
+    int fieldLocation = mode == INSTANCE_FIELD ? location.toInt() : 0;
+    Magic.setObjectAtOffset(objref.toObject(), offset.toOffset(), value.toObject(), fieldLocation);
   }
 
   /**
@@ -682,4 +687,26 @@ public class Barriers extends org.mmtk.vm.Barriers {
       dst[index] = value;
     }
   }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * For instance fields the meta-data is the id of the field's
+   * FieldReference (as returned by RVMField.getId()); for array elements
+   * it is the id of the array's RVMType.
+   */
+  @Override
+  public final void writeLocation(Word metaData, int mode) {
+    int id = metaData.toInt();
+    if (mode == INSTANCE_FIELD) {
+      FieldReference field = MemberReference.getFieldRef(id);
+      Log.write(field.getType().getName().toByteArray());
+      Log.write(".");
+      Log.write(field.getName().toByteArray());
+    } else if (mode == ARRAY_ELEMENT) {
+      Log.write(RVMType.getType(id).getDescriptor().toByteArray());
+    } else {
+      Log.write(metaData);
+    }
+  }
 }
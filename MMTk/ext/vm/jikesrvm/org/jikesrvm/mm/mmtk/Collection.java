@@ -49,6 +49,11 @@ public class Collection extends org.mmtk.vm.Collection {
     t.start();
   }
 
+  @Override
+  public void bindToNumaNode(int node) {
+    SysCall.sysCall.sysThreadBindNode(node);
+  }
+
   @Override
   public int getDefaultThreads() {
     return SysCall.sysCall.sysNumProcessors();
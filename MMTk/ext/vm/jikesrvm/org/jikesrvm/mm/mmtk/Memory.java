@@ -18,6 +18,7 @@ import static org.jikesrvm.HeapLayoutConstants.MAXIMUM_MAPPABLE;
 import static org.jikesrvm.runtime.JavaSizeConstants.BYTES_IN_DOUBLE;
 import static org.jikesrvm.runtime.JavaSizeConstants.LOG_BYTES_IN_INT;
 import static org.jikesrvm.runtime.JavaSizeConstants.LOG_BYTES_IN_LONG;
+import static org.jikesrvm.runtime.SysCall.sysCall;
 import static org.jikesrvm.runtime.UnboxedSizeConstants.LOG_BYTES_IN_ADDRESS;
 import static org.jikesrvm.runtime.UnboxedSizeConstants.LOG_BYTES_IN_WORD;
 import static org.mmtk.utility.Constants.LOG_BYTES_IN_MBYTE;
@@ -109,6 +110,9 @@ import org.vmmagic.unboxed.Offset;
 
   private static ImmortalSpace bootSpace;
 
+  /** The number of NUMA nodes, discovered lazily */
+  private static int numaNodes;
+
   /**
    * Return the space associated with/reserved for the VM.  In the
    * case of Jikes RVM this is the boot image space.<p>
@@ -191,6 +195,22 @@ import org.vmmagic.unboxed.Offset;
     org.jikesrvm.runtime.Memory.zero(useNT, start,len);
   }
 
+  @Override
+  public final int numaNodes() {
+    if (numaNodes == 0) numaNodes = sysCall.sysNumaNodes();
+    return numaNodes;
+  }
+
+  @Override
+  public final int currentNumaNode() {
+    return sysCall.sysNumaCurrentNode();
+  }
+
+  @Override
+  public final void numaBind(Address start, Extent len, int node) {
+    sysCall.sysNumaBind(start, len, node);
+  }
+
   @Override
   public final void dumpMemory(Address start, int beforeBytes,
                                 int afterBytes) {
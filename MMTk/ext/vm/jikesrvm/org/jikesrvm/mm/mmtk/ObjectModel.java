@@ -202,6 +202,12 @@ import org.vmmagic.unboxed.Word;
     return Magic.getArrayLength(object.toObject());
   }
 
+  @Override
+  @Inline
+  public void prefetchTypeInformation(ObjectReference object) {
+    Magic.objectAsAddress(org.jikesrvm.objectmodel.ObjectModel.getTIB(object)).prefetch();
+  }
+
   @Override
   public boolean isArray(ObjectReference object) {
     return org.jikesrvm.objectmodel.ObjectModel.getObjectType(object.toObject()).isArrayType();
@@ -59,6 +59,10 @@ public class PlanSpecificConfig {
     /* Heap factors determined by min heap size for FixedLive benchmark */
     final double BASE_HEAP = 9472d; // Heap size in k for MS
 
+    register(
+        new PlanSpecific("org.mmtk.plan.concurrent.immix.CImmix")
+        .addExpectedSpaces("immix"),
+        "CImmix");
     register(
         new PlanSpecific("org.mmtk.plan.copyms.CopyMS")
         .addExpectedSpaces("nursery", "ms"),
@@ -89,6 +93,10 @@ public class PlanSpecificConfig {
         new PlanSpecific("org.mmtk.plan.marksweep.MS")
         .addExpectedSpaces("ms"),
         "MS", "MarkSweep");
+    register(
+        new PlanSpecific("org.mmtk.plan.marksweep.dirtylog.DirtyLog")
+        .addExpectedSpaces("ms"),
+        "DirtyLog");
     register(
         new PlanSpecific("org.mmtk.plan.nogc.NoGC")
         .addExpectedSpaces("default"),
@@ -112,6 +120,11 @@ public class PlanSpecificConfig {
         .addExpectedSpaces("nursery", "rclos", "rc")
         .heapFactor(9984 / BASE_HEAP),
         "GenRC");
+    register(
+        new PlanSpecific("org.mmtk.plan.refcount.trialdeletion.TDRC")
+        .addExpectedSpaces("rclos", "rc")
+        .heapFactor(9856 / BASE_HEAP),
+        "TDRC");
     register(
         new PlanSpecific("org.mmtk.plan.semispace.SS")
         .heapFactor(18816 / BASE_HEAP)
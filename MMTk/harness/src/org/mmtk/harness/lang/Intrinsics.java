@@ -21,6 +21,7 @@ import org.mmtk.harness.lang.runtime.WeakReferenceValue;
 import org.mmtk.harness.scheduler.Scheduler;
 import org.mmtk.harness.vm.Collection;
 import org.mmtk.plan.Plan;
+import org.mmtk.plan.refcount.trialdeletion.TrialDeletion;
 
 /**
  * "built in" intrinsic functions
@@ -45,6 +46,15 @@ public class Intrinsics {
     return Collection.getGcCount();
   }
 
+  /**
+   * @return the number of objects freed by trial deletion, in reference
+   * counting plans that collect cycles that way
+   * @param env Thread-local environment (language-dependent mutator context)
+   */
+  public static int trialDeletionFreed(Env env) {
+    return TrialDeletion.totalFreed();
+  }
+
   /**
    * Return the thread ID
    * @param env Thread-local environment (language-dependent mutator context)
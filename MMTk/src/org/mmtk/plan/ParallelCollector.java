@@ -12,6 +12,7 @@
  */
 package org.mmtk.plan;
 
+import org.mmtk.utility.options.Options;
 import org.mmtk.vm.VM;
 
 import org.vmmagic.pragma.*;
@@ -40,11 +41,18 @@ public abstract class ParallelCollector extends CollectorContext {
    */
 
   /**
-   * {@inheritDoc}
+   * {@inheritDoc}<p>
+   *
+   * When NUMA placement is enabled, the collectors are first spread
+   * across the NUMA nodes, the collector with ordinal <i>i</i> being
+   * bound to node <i>i</i> modulo the number of nodes.
    */
   @Override
   @Unpreemptible
   public void run() {
+    if (Options.numaAware.getValue()) {
+      VM.collection.bindToNumaNode(workerOrdinal % VM.memory.numaNodes());
+    }
     while (true) {
       park();
       collect();
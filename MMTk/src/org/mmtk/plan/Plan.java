@@ -93,6 +93,7 @@ public abstract class Plan {
 //  public static final int LOS_SIZE_THRESHOLD = SegregatedFreeListSpace.MAX_CELL_SIZE;
   public static final int NON_PARTICIPANT = 0;
   public static final boolean GATHER_WRITE_BARRIER_STATS = false;
+  public static final boolean GATHER_WRITE_BARRIER_PROFILE = false;
   public static final int DEFAULT_MIN_NURSERY =  (2 << 20) >> LOG_BYTES_IN_PAGE;
   public static final int DEFAULT_MAX_NURSERY = (32 << 20) >> LOG_BYTES_IN_PAGE;
   public static final boolean SCAN_BOOT_IMAGE = true;  // scan it for roots rather than trace it
@@ -176,6 +177,7 @@ public abstract class Plan {
     Options.useReturnBarrier = new UseReturnBarrier();
     Options.useShortStackScans = new UseShortStackScans();
     Options.threads = new Threads();
+    Options.tracePrefetchDistance = new TracePrefetchDistance();
     Options.cycleTriggerThreshold = new CycleTriggerThreshold();
     HeapLayout.vmMap.finalizeStaticSpaceMap();
     registerSpecializedMethods();
@@ -391,6 +393,36 @@ public abstract class Plan {
     return reference;
   }
 
+  /**
+   * Give the plan an opportunity to specialize the location metadata that
+   * a compiler passes to the reference putfield write barrier at a given
+   * store site.  By default the metadata is simply the field id.
+   *
+   * @param fieldId the host VM's identifier for the field being written
+   * @return The location metadata to pass to the write barrier
+   */
+  public int fieldWriteBarrierMetadata(int fieldId) {
+    return fieldId;
+  }
+
+  /**
+   * Will an object allocated by the given allocator be allocated into
+   * a nursery, such that it remains in the nursery until the next
+   * collection?  Compilers use this to elide write barriers on stores
+   * into freshly allocated objects (see
+   * {@link PlanConstraints#writeBarrierOnlyRemembersNurseryReferences()}).
+   * By default no allocation is known to be young.
+   *
+   * @param bytes The size of the object in bytes
+   * @param align The requested alignment
+   * @param allocator The allocator chosen for the allocation site
+   * @return {@code true} if the object will certainly be allocated into
+   * the nursery
+   */
+  public boolean allocatesIntoNursery(int bytes, int align, int allocator) {
+    return false;
+  }
+
   /**
    * Performs any required initialization of the GC portion of the header.
    * Called for objects created at boot time.
@@ -232,6 +232,28 @@ import org.vmmagic.pragma.*;
     return false;
   }
 
+  /**
+   * @return {@code true} if this Plan's object reference write barrier only
+   * needs to remember stores of references to nursery objects into objects
+   * outside the nursery.  A compiler may then omit the barrier for stores of
+   * null or immortal values, and for stores into objects it can prove are
+   * still in the nursery.
+   */
+  public boolean writeBarrierOnlyRemembersNurseryReferences() {
+    return false;
+  }
+
+  /**
+   * @return {@code true} if this Plan's object reference putfield write
+   * barrier does nothing but perform the store unless the unlogged bit
+   * (see {@link org.mmtk.utility.HeaderByte#UNLOGGED_BIT}) is set in the
+   * header of the source object.  A compiler may then emit the test of
+   * the unlogged bit inline, and only call the barrier when it is set.
+   */
+  public boolean putfieldBarrierTestsUnloggedBit() {
+    return false;
+  }
+
   /** @return {@code true} if this Plan requires linear scanning. */
   public boolean needsLinearScan() {
     return org.mmtk.utility.Constants.SUPPORT_CARD_SCANNING ||
@@ -300,6 +322,15 @@ import org.vmmagic.pragma.*;
     return false;
   }
 
+  /**
+   * @return {@code true} if this Plan reserves the unlogged bit in the
+   * GC byte.  Unlike {@link #needsLogBitInHeader()}, this does not put
+   * mark-sweep spaces into sticky mark bit mode.
+   */
+  public boolean needsUnloggedBit() {
+    return needsLogBitInHeader();
+  }
+
   /** @return the maximum number of GC threads supported by this plan.
    * The return value must be a positive number. */
   public int maxNumGCThreads() {
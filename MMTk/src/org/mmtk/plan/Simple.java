@@ -61,6 +61,7 @@ public abstract class Simple extends Plan {
   public static final short FORWARD_REFS        = Phase.createSimple("forward-ref", refTypeTime);
   public static final short FORWARD_FINALIZABLE = Phase.createSimple("forward-finalize", finalizeTime);
   public static final short RELEASE             = Phase.createSimple("release");
+  public static final short SWEEP_LOS           = Phase.createSimple("sweep-los");
   public static final short COMPLETE            = Phase.createSimple("complete", null);
 
   /* Sanity placeholder */
@@ -150,6 +151,7 @@ public abstract class Simple extends Plan {
   protected static final short completeClosurePhase = Phase.createComplex("release", null,
       Phase.scheduleMutator    (RELEASE),
       Phase.scheduleCollector  (RELEASE),
+      Phase.scheduleCollector  (SWEEP_LOS),
       Phase.scheduleGlobal     (RELEASE));
 
 
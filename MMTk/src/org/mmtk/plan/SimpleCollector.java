@@ -143,6 +143,12 @@ public abstract class SimpleCollector extends ParallelCollector {
       return;
     }
 
+    if (phaseId == Simple.SWEEP_LOS) {
+      Plan.loSpace.sweep();
+      if (Plan.USE_CODE_SPACE) Plan.largeCodeSpace.sweep();
+      return;
+    }
+
     if (Options.sanityCheck.getValue() && sanityLocal.collectionPhase(phaseId, primary)) {
       return;
     }
@@ -33,6 +33,18 @@ import org.vmmagic.unboxed.*;
  */
 @Uninterruptible
 public abstract class TraceLocal extends TransitiveClosure {
+  /****************************************************************************
+   *
+   * Constants
+   */
+
+  /** The default number of gray objects prefetched ahead of scanning */
+  public static final int DEFAULT_PREFETCH_DISTANCE = 0;
+  /** The maximum number of gray objects prefetched ahead of scanning */
+  public static final int MAX_PREFETCH_DISTANCE = 32;
+  private static final int LOG_PREFETCH_BUFFER_SIZE = 6;
+  private static final int PREFETCH_BUFFER_MASK = (1 << LOG_PREFETCH_BUFFER_SIZE) - 1;
+
   /****************************************************************************
    *
    * Instance variables
@@ -43,6 +55,13 @@ public abstract class TraceLocal extends TransitiveClosure {
   /** delayed root slots */
   protected final AddressDeque rootLocations;
 
+  /** gray objects popped and prefetched, waiting to be scanned (a FIFO) */
+  private final AddressArray prefetchBuffer = AddressArray.create(1 << LOG_PREFETCH_BUFFER_SIZE);
+  /** the index of the oldest object in the prefetch buffer */
+  private int prefetchHead;
+  /** the number of objects in the prefetch buffer */
+  private int prefetchCount;
+
   /****************************************************************************
    *
    * Initialization
@@ -490,13 +509,51 @@ public abstract class TraceLocal extends TransitiveClosure {
     logMessage(5, "processing gray objects");
     assertMutatorRemsetsFlushed();
     do {
+      processValues();
+      processRememberedSets();
+    } while (!values.isEmpty());
+    assertMutatorRemsetsFlushed();
+  }
+
+  /**
+   * Scan gray objects until none remain.<p>
+   *
+   * When prefetching is enabled (it is off by default), each gray object
+   * is prefetched as it is popped, and placed in a FIFO buffer until
+   * {@link Options#tracePrefetchDistance} more objects have been popped,
+   * by when it is likely to be in the cache.  As each object is scanned
+   * the type information of the next object in the buffer, whose header
+   * should by then be cached, is prefetched too.  While the buffer holds
+   * objects the deque is popped without waiting for other collectors.
+   */
+  @Inline
+  private void processValues() {
+    int distance = Options.tracePrefetchDistance.getValue();
+    if (distance == 0) {
       while (!values.isEmpty()) {
         ObjectReference v = values.pop();
         scanObject(v);
       }
-      processRememberedSets();
-    } while (!values.isEmpty());
-    assertMutatorRemsetsFlushed();
+      return;
+    }
+    while (true) {
+      ObjectReference v = prefetchCount == 0 ? values.pop() : values.popNonBlocking();
+      if (!v.isNull()) {
+        VM.objectModel.refToAddress(v).prefetch();
+        v.toAddress().prefetch();
+        prefetchBuffer.set((prefetchHead + prefetchCount) & PREFETCH_BUFFER_MASK, v.toAddress());
+        if (++prefetchCount <= distance) continue;
+      } else if (prefetchCount == 0) {
+        return;
+      }
+      ObjectReference oldest = prefetchBuffer.get(prefetchHead).toObjectReference();
+      prefetchHead = (prefetchHead + 1) & PREFETCH_BUFFER_MASK;
+      prefetchCount--;
+      if (prefetchCount > 0) {
+        VM.objectModel.prefetchTypeInformation(prefetchBuffer.get(prefetchHead).toObjectReference());
+      }
+      scanObject(oldest);
+    }
   }
 
   /**
@@ -0,0 +1,198 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.generational;
+
+import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This class selects between the slot and object write barriers on a
+ * per-field basis when {@link Gen#USE_ADAPTIVE_FIELD_BARRIER} is set.<p>
+ *
+ * Each reference putfield is identified by the location metadata the
+ * host VM passes to the barrier (the field id).  Field ids are hashed
+ * into a direct-mapped table which records, for each field, the number
+ * of stores observed since the last collection, the number of those
+ * stores that took the barrier slow path, and the barrier kind currently
+ * chosen for the field.  At the end of each collection the counts are
+ * used to re-select the barrier kind: a field that is written frequently
+ * and often remembered (typically the same field of the same old object
+ * being overwritten with fresh nursery objects) moves to the object
+ * barrier, whose unlogged bit filters repeated stores, while a field
+ * whose stores are rarely filtered by the object barrier, or which has
+ * become cold, moves back to the slot barrier.  Fields that are written
+ * rarely keep the default slot barrier.<p>
+ *
+ * Since both barriers are independently sound, a field may use
+ * different barriers at different sites (for example, a site compiled
+ * before the selection changed) without compromising correctness.
+ * Unrelated fields that hash to the same entry share a selection, which
+ * again only affects performance.  The counters are updated without
+ * synchronization; lost updates merely perturb the heuristic.<p>
+ *
+ * Compilers may specialize a store site on the current selection via
+ * {@link #specialize(int)}, in which case the barrier kind is encoded in
+ * the location metadata and is constant-folded when the barrier is
+ * inlined.
+ */
+@Uninterruptible
+public final class AdaptiveFieldBarrier {
+
+  /****************************************************************************
+   *
+   * Constants
+   */
+
+  /** Location metadata bit indicating the site has been specialized by a compiler */
+  public static final int SPECIALIZED = 1 << 30;
+  /** Location metadata bit indicating a specialized site uses the object barrier */
+  public static final int OBJECT_BARRIER = 1 << 29;
+  /** Mask extracting the field id from the location metadata */
+  public static final int FIELD_ID_MASK = OBJECT_BARRIER - 1;
+
+  private static final int LOG_TABLE_SIZE = 13;
+  private static final int TABLE_SIZE = 1 << LOG_TABLE_SIZE;
+  private static final int TABLE_MASK = TABLE_SIZE - 1;
+
+  /** A field must see at least this many stores between collections to be considered hot */
+  private static final int HOT_STORES = 1024;
+  /** A field seeing fewer than this many (but some) stores between collections is cold */
+  private static final int COLD_STORES = HOT_STORES >> 4;
+  /** Move a hot field to the object barrier if at least 1 in 2^N of its stores was remembered */
+  private static final int LOG_SLOT_HIT_RATE = 2;
+  /** Move a hot field back to the slot barrier if at most 1 in 2^N of its stores was filtered */
+  private static final int LOG_OBJECT_FILTER_RATE = 3;
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** Stores observed for each field since the last collection */
+  private static final int[] stores = new int[TABLE_SIZE];
+  /** Stores that took the barrier slow path since the last collection */
+  private static final int[] remembered = new int[TABLE_SIZE];
+  /** {@code true} if the field currently uses the object barrier */
+  private static final boolean[] useObjectBarrier = new boolean[TABLE_SIZE];
+
+  /** Number of table entries currently selecting the object barrier */
+  private static int objectBarrierFields = 0;
+
+  /****************************************************************************
+   *
+   * Mutator-time interface
+   */
+
+  /**
+   * Should a store described by the given location metadata use the
+   * object barrier?
+   *
+   * @param metadata The location metadata passed to the barrier
+   * @return {@code true} if the object barrier should be used
+   */
+  @Inline
+  public static boolean useObjectBarrier(int metadata) {
+    if ((metadata & SPECIALIZED) != 0)
+      return (metadata & OBJECT_BARRIER) != 0;
+    return useObjectBarrier[metadata & TABLE_MASK];
+  }
+
+  /**
+   * Record a store to the field described by the given location metadata.
+   *
+   * @param metadata The location metadata passed to the barrier
+   */
+  @Inline
+  public static void recordStore(int metadata) {
+    stores[metadata & TABLE_MASK]++;
+  }
+
+  /**
+   * Record that a store to the field described by the given location
+   * metadata took the barrier slow path.
+   *
+   * @param metadata The location metadata passed to the barrier
+   */
+  @Inline
+  public static void recordRemembered(int metadata) {
+    remembered[metadata & TABLE_MASK]++;
+  }
+
+  /****************************************************************************
+   *
+   * Compile-time interface
+   */
+
+  /**
+   * Encode the current barrier selection for a field into the location
+   * metadata for a store site, allowing a compiler to emit only the
+   * chosen barrier.
+   *
+   * @param fieldId The host VM's identifier for the field
+   * @return The location metadata to pass to the barrier at this site
+   */
+  public static int specialize(int fieldId) {
+    int metadata = (fieldId & FIELD_ID_MASK) | SPECIALIZED;
+    if (useObjectBarrier[fieldId & TABLE_MASK])
+      metadata |= OBJECT_BARRIER;
+    return metadata;
+  }
+
+  /****************************************************************************
+   *
+   * Collection-time interface
+   */
+
+  /**
+   * Re-select the barrier kind for each field that was written during
+   * the last mutator interval, then reset the counters.  Called once per
+   * collection by the global plan.
+   */
+  public static void adapt() {
+    int changes = 0;
+    for (int i = 0; i < TABLE_SIZE; i++) {
+      int s = stores[i];
+      if (useObjectBarrier[i] && s > 0 && s < COLD_STORES) {
+        useObjectBarrier[i] = false;
+        objectBarrierFields--;
+        changes++;
+      } else if (s >= HOT_STORES) {
+        int r = remembered[i];
+        if (!useObjectBarrier[i]) {
+          if ((r << LOG_SLOT_HIT_RATE) >= s) {
+            useObjectBarrier[i] = true;
+            objectBarrierFields++;
+            changes++;
+          }
+        } else {
+          if (s - r <= (s >> LOG_OBJECT_FILTER_RATE)) {
+            useObjectBarrier[i] = false;
+            objectBarrierFields--;
+            changes++;
+          }
+        }
+      }
+      stores[i] = 0;
+      remembered[i] = 0;
+    }
+    if (Options.verbose.getValue() >= 3 && changes > 0) {
+      Log.write("[Adaptive field barrier: ");
+      Log.write(changes);
+      Log.write(" changed, ");
+      Log.write(objectBarrierFields);
+      Log.writeln(" using object barrier]");
+    }
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.generational;
+
+import static org.mmtk.utility.Constants.BYTES_IN_ADDRESS;
+import static org.mmtk.utility.Constants.BYTES_IN_PAGE;
+import static org.mmtk.utility.Constants.BYTES_IN_WORD;
+import static org.mmtk.utility.Constants.LOG_BYTES_IN_ADDRESS;
+
+import org.mmtk.plan.Plan;
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.utility.Conversions;
+import org.mmtk.utility.heap.layout.VMLayoutConstants;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements a card table remembered set for the elements
+ * of reference arrays outside the nursery, used when
+ * {@link Gen#USE_CARD_MARKING} is set or when the card barrier is
+ * selected at run time (see {@link Gen#SELECT_BARRIER_AT_RUN_TIME}).<p>
+ *
+ * The table holds one byte per card, covering the whole heap address
+ * range, and is allocated from the meta data space when allocation is
+ * enabled.  The table size is therefore bounded by the heap range rather
+ * than by the number of stores, and only suits the 32-bit heap layout.<p>
+ *
+ * The collector must be able to enumerate the reference slots of a
+ * dirty card.  Since the mature spaces do not record where objects start,
+ * a card is only ever dirtied when it lies entirely within the elements
+ * of a single reference array, in which case every word of the card is a
+ * reference slot.  Stores to the partial cards at either end of an array
+ * are remembered in the slot and array remembered sets as before.<p>
+ *
+ * Mature objects neither move nor die during a nursery collection, so the
+ * dirty cards remain valid until they are scanned and cleaned by the next
+ * nursery collection.  A full heap collection may free or move mature
+ * arrays, so it cleans the whole table instead.<p>
+ *
+ * Only reference array element stores (aastore and array copies) mark
+ * cards.  Stores to instance fields are not card marked: they go through
+ * the slot or object barrier selected for putfield, whatever the setting
+ * of {@link Gen#USE_CARD_MARKING}.
+ */
+@Uninterruptible
+public final class CardTable {
+
+  /****************************************************************************
+   *
+   * Constants
+   */
+
+  /**
+   *
+   */
+  public static final int LOG_BYTES_IN_CARD = 9;
+  public static final int BYTES_IN_CARD = 1 << LOG_BYTES_IN_CARD;
+  private static final Word CARD_MASK = Word.fromIntZeroExtend(BYTES_IN_CARD - 1);
+
+  private static final byte DIRTY = 1;
+
+  /** Cards covering the heap address range, one table byte each */
+  private static final Extent CARDS = VMLayoutConstants.HEAP_END.diff(VMLayoutConstants.HEAP_START).toWord().rshl(LOG_BYTES_IN_CARD).toExtent();
+  /** Size of the table, rounded up to whole pages */
+  private static final Extent TABLE_BYTES = Conversions.pagesToBytes(Conversions.bytesToPagesUp(CARDS));
+
+  /** Cards scanned by a collector as a unit when the table is shared between collectors */
+  private static final int CARDS_IN_STRIDE = BYTES_IN_PAGE;
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** The card table */
+  private static Address table = Address.zero();
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * Allocate the card table.  Called when allocation is enabled, before
+   * the first nursery object can be created.
+   */
+  @Interruptible
+  public static void boot() {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(VM.HEAP_LAYOUT_32BIT);
+    table = Plan.metaDataSpace.acquire(Conversions.bytesToPages(TABLE_BYTES));
+    if (table.isZero()) VM.assertions.fail("Failed to allocate the card table");
+  }
+
+  /****************************************************************************
+   *
+   * Mutator-time interface
+   */
+
+  /**
+   * @param addr An address in the heap
+   * @return The start of the card containing the address
+   */
+  @Inline
+  public static Address cardStart(Address addr) {
+    return addr.toWord().and(CARD_MASK.not()).toAddress();
+  }
+
+  /**
+   * @param addr An address in the heap
+   * @return The address of the card table entry for that address
+   */
+  @Inline
+  private static Address entry(Address addr) {
+    return table.plus(addr.diff(VMLayoutConstants.HEAP_START).toWord().rshl(LOG_BYTES_IN_CARD).toExtent());
+  }
+
+  /**
+   * Remember a store to an element of a reference array outside the
+   * nursery, marking the card containing the element if the card lies
+   * within the array's elements.
+   *
+   * @param slot The address of the element being written
+   * @param first The address of the first element of the array
+   * @param length The length of the array
+   * @return {@code true} if the card was marked, {@code false} if the
+   * store must be remembered some other way
+   */
+  @Inline
+  public static boolean mark(Address slot, Address first, int length) {
+    Address card = cardStart(slot);
+    Address limit = first.plus(Word.fromIntZeroExtend(length).lsh(LOG_BYTES_IN_ADDRESS).toExtent());
+    if (card.GE(first) && card.plus(BYTES_IN_CARD).LE(limit)) {
+      entry(card).store(DIRTY);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Mark the cards lying entirely within a range of reference array
+   * elements outside the nursery.
+   *
+   * @param start The address of the first element of the range
+   * @param end The address just beyond the last element of the range
+   * @return The start of the cards marked, or {@code end} if no card
+   * lies within the range.  The elements from {@code start} up to this
+   * address, and from {@link #cardStart(Address) cardStart(end)} up to
+   * {@code end}, were not covered and must be remembered some other way.
+   */
+  @Inline
+  public static Address markRange(Address start, Address end) {
+    if (table.isZero()) return end; // not yet booted
+    Address first = cardStart(start.plus(BYTES_IN_CARD - 1));
+    Address limit = cardStart(end);
+    if (first.GE(limit)) return end;
+    for (Address card = first; card.LT(limit); card = card.plus(BYTES_IN_CARD)) {
+      entry(card).store(DIRTY);
+    }
+    return first;
+  }
+
+  /****************************************************************************
+   *
+   * Collection-time interface
+   */
+
+  /**
+   * Scan this collector's share of the dirty cards, processing every
+   * slot of each dirty card as a remembered edge and cleaning the card.
+   *
+   * @param trace The nursery trace
+   * @param ordinal This collector's ordinal among the parallel collectors
+   * @param collectors The number of parallel collectors
+   * @return The number of dirty cards scanned
+   */
+  public static int scan(TraceLocal trace, int ordinal, int collectors) {
+    int dirty = 0;
+    Extent stride = Extent.fromIntZeroExtend(collectors * CARDS_IN_STRIDE);
+    for (Extent base = Extent.fromIntZeroExtend(ordinal * CARDS_IN_STRIDE); base.LT(CARDS); base = base.plus(stride)) {
+      Extent limit = base.plus(CARDS_IN_STRIDE);
+      if (limit.GT(CARDS)) limit = CARDS;
+      for (Extent index = base; index.LT(limit); index = index.plus(BYTES_IN_WORD)) {
+        /* skip clean cards a word at a time */
+        if (table.plus(index).loadWord().isZero()) continue;
+        Extent wordLimit = index.plus(BYTES_IN_WORD);
+        if (wordLimit.GT(limit)) wordLimit = limit;
+        for (Extent i = index; i.LT(wordLimit); i = i.plus(1)) {
+          Address entry = table.plus(i);
+          if (entry.loadByte() != 0) {
+            entry.store((byte) 0);
+            dirty++;
+            scanCard(trace, VMLayoutConstants.HEAP_START.plus(i.toWord().lsh(LOG_BYTES_IN_CARD).toExtent()));
+          }
+        }
+      }
+    }
+    return dirty;
+  }
+
+  /**
+   * Process each slot of a dirty card as a remembered edge.
+   *
+   * @param trace The nursery trace
+   * @param card The start of the card
+   */
+  private static void scanCard(TraceLocal trace, Address card) {
+    Address limit = card.plus(BYTES_IN_CARD);
+    for (Address slot = card; slot.LT(limit); slot = slot.plus(BYTES_IN_ADDRESS)) {
+      trace.processRootEdge(slot, false);
+    }
+  }
+
+  /**
+   * Clean every card.  Called by a full heap collection, which may
+   * move or free the arrays containing dirty cards.
+   */
+  public static void clear() {
+    VM.memory.zero(false, table, TABLE_BYTES);
+  }
+}
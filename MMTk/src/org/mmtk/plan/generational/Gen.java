@@ -12,16 +12,20 @@
  */
 package org.mmtk.plan.generational;
 
+import static org.mmtk.utility.Constants.ARRAY_ELEMENT;
+import static org.mmtk.utility.Constants.INSTANCE_FIELD;
 import static org.mmtk.utility.Constants.LOG_BYTES_IN_PAGE;
 
 import org.mmtk.plan.*;
 import org.mmtk.policy.CopySpace;
 import org.mmtk.policy.Space;
 
+import org.mmtk.utility.alloc.Allocator;
 import org.mmtk.utility.deque.*;
 import org.mmtk.utility.heap.VMRequest;
 import org.mmtk.utility.heap.layout.HeapLayout;
 import org.mmtk.utility.Log;
+import org.mmtk.utility.options.GenBarrier;
 import org.mmtk.utility.options.Options;
 import org.mmtk.utility.sanitychecker.SanityChecker;
 import org.mmtk.utility.statistics.*;
@@ -64,7 +68,11 @@ public abstract class Gen extends StopTheWorld {
   public static final boolean USE_NON_HEAP_OBJECT_REFERENCE_WRITE_BARRIER = false;
   public static final boolean USE_OBJECT_BARRIER_FOR_AASTORE = false; // choose between slot and object barriers
   public static final boolean USE_OBJECT_BARRIER_FOR_PUTFIELD = false; // choose between slot and object barriers
-  public static final boolean USE_OBJECT_BARRIER = USE_OBJECT_BARRIER_FOR_AASTORE || USE_OBJECT_BARRIER_FOR_PUTFIELD;
+  public static final boolean USE_ADAPTIVE_FIELD_BARRIER = false; // choose between slot and object barriers per field, at run time
+  public static final boolean USE_CARD_MARKING = false; // remember array element (not field) stores in a card table
+  public static final boolean SELECT_BARRIER_AT_RUN_TIME = VM.config.SELECT_GEN_BARRIER; // choose between slot, object and card barriers with the genBarrier option
+  public static final boolean USE_OBJECT_BARRIER = USE_OBJECT_BARRIER_FOR_AASTORE || USE_OBJECT_BARRIER_FOR_PUTFIELD || USE_ADAPTIVE_FIELD_BARRIER || SELECT_BARRIER_AT_RUN_TIME;
+  static final boolean USE_CARD_TABLE = USE_CARD_MARKING || SELECT_BARRIER_AT_RUN_TIME;
 
   /** Fraction of available virtual memory to give to the nursery (if contiguous) */
   protected static final float NURSERY_VM_FRACTION = 0.15f;
@@ -95,6 +103,9 @@ public abstract class Gen extends StopTheWorld {
   private static final Timer fullHeapTime = new Timer("majorGCTime", false, true);
   protected static final EventCounter wbFast;
   protected static final EventCounter wbSlow;
+  protected static final EventCounter remsetEntries;
+  private static final BarrierProfile fieldBarrierProfile;
+  private static final BarrierProfile arrayBarrierProfile;
   public static final SizeCounter nurseryMark;
   public static final SizeCounter nurseryCons;
 
@@ -105,6 +116,10 @@ public abstract class Gen extends StopTheWorld {
   public static final int NURSERY = nurserySpace.getDescriptor();
   private static final Address NURSERY_START = nurserySpace.getStart();
 
+  /* The barrier chosen by the genBarrier option, if SELECT_BARRIER_AT_RUN_TIME */
+  private static boolean useObjectBarrier = false;
+  private static boolean useCardMarking = false;
+
   /*****************************************************************************
    *
    * Instance fields
@@ -139,9 +154,18 @@ public abstract class Gen extends StopTheWorld {
     if (GATHER_WRITE_BARRIER_STATS) {
       wbFast = new EventCounter("wbFast");
       wbSlow = new EventCounter("wbSlow");
+      remsetEntries = new EventCounter("remset");
     } else {
       wbFast = null;
       wbSlow = null;
+      remsetEntries = null;
+    }
+    if (GATHER_WRITE_BARRIER_PROFILE) {
+      fieldBarrierProfile = new BarrierProfile("putfield", INSTANCE_FIELD);
+      arrayBarrierProfile = new BarrierProfile("aastore", ARRAY_ELEMENT);
+    } else {
+      fieldBarrierProfile = null;
+      arrayBarrierProfile = null;
     }
     if (Stats.GATHER_MARK_CONS_STATS) {
       nurseryMark = new SizeCounter("nurseryMark", true, true);
@@ -150,6 +174,9 @@ public abstract class Gen extends StopTheWorld {
       nurseryMark = null;
       nurseryCons = null;
     }
+    if (SELECT_BARRIER_AT_RUN_TIME) {
+      Options.genBarrier = new GenBarrier();
+    }
   }
 
   /*****************************************************************************
@@ -186,6 +213,7 @@ public abstract class Gen extends StopTheWorld {
         // we can throw away the remsets (but not modbuf) for a full heap GC
         remsetPool.clearDeque(1);
         arrayRemsetPool.clearDeque(2);
+        if (USE_CARD_TABLE) CardTable.clear();
       }
       return;
     }
@@ -216,6 +244,12 @@ public abstract class Gen extends StopTheWorld {
         if (gcFullHeap) fullHeapTime.stop();
       }
       nextGCFullHeap = (getPagesAvail() < Options.nurserySize.getMinNursery());
+      if (USE_ADAPTIVE_FIELD_BARRIER) AdaptiveFieldBarrier.adapt();
+      if (GATHER_WRITE_BARRIER_PROFILE) {
+        boolean print = Options.verbose.getValue() >= 3;
+        fieldBarrierProfile.endInterval(print);
+        arrayBarrierProfile.endInterval(print);
+      }
       return;
     }
 
@@ -279,6 +313,49 @@ public abstract class Gen extends StopTheWorld {
     return ((int)(getCollectionReserve() * WORST_CASE_COPY_EXPANSION)) >= getMaturePhysicalPagesAvail();
   }
 
+  /**
+   * Record the execution of a write barrier in the write barrier profile.
+   *
+   * @param locationMetadata The location metadata passed to the barrier
+   * @param mode The mode of the store
+   * @param slowPath {@code true} if the barrier remembered the store
+   */
+  @Inline
+  static void profileWriteBarrier(Word locationMetadata, int mode, boolean slowPath) {
+    if (mode == ARRAY_ELEMENT) {
+      arrayBarrierProfile.record(locationMetadata.toInt(), slowPath);
+    } else if (mode == INSTANCE_FIELD) {
+      fieldBarrierProfile.record(locationMetadata.toInt() & AdaptiveFieldBarrier.FIELD_ID_MASK, slowPath);
+    }
+  }
+
+  @Override
+  @Interruptible
+  public void processOptions() {
+    super.processOptions();
+    if (SELECT_BARRIER_AT_RUN_TIME) {
+      useObjectBarrier = Options.genBarrier.getObject();
+      useCardMarking = Options.genBarrier.getCard();
+    }
+  }
+
+  @Override
+  @Interruptible
+  public void enableAllocation() {
+    super.enableAllocation();
+    if (USE_CARD_TABLE) CardTable.boot();
+  }
+
+  @Override
+  @Interruptible
+  public void notifyExit(int value) {
+    super.notifyExit(value);
+    if (GATHER_WRITE_BARRIER_PROFILE) {
+      fieldBarrierProfile.print(true);
+      arrayBarrierProfile.print(true);
+    }
+  }
+
   /*****************************************************************************
    *
    * Correctness
@@ -358,6 +435,24 @@ public abstract class Gen extends StopTheWorld {
     return inNursery(obj.toAddress());
   }
 
+  /**
+   * @return {@code true} if putfield and aastore use the object barrier
+   * selected at run time
+   */
+  @Inline
+  static boolean objectBarrierSelected() {
+    return SELECT_BARRIER_AT_RUN_TIME && useObjectBarrier;
+  }
+
+  /**
+   * @return {@code true} if array element stores mark cards in the
+   * card table
+   */
+  @Inline
+  static boolean markCards() {
+    return USE_CARD_MARKING || (SELECT_BARRIER_AT_RUN_TIME && useCardMarking);
+  }
+
   /**
    * @return Does the mature space do copying ?
    */
@@ -402,6 +497,20 @@ public abstract class Gen extends StopTheWorld {
     return gcFullHeap;
   }
 
+  @Override
+  public int fieldWriteBarrierMetadata(int fieldId) {
+    if (USE_ADAPTIVE_FIELD_BARRIER)
+      return AdaptiveFieldBarrier.specialize(fieldId);
+    return fieldId;
+  }
+
+  @Override
+  public boolean allocatesIntoNursery(int bytes, int align, int allocator) {
+    if (allocator != ALLOC_NURSERY && allocator != ALLOC_NON_REFERENCE) return false;
+    int maxBytes = Allocator.getMaximumAlignedSize(bytes, align);
+    return maxBytes <= MAX_NON_LOS_DEFAULT_ALLOC_BYTES && maxBytes <= MAX_NON_LOS_COPY_BYTES;
+  }
+
   @Override
   public boolean willNeverMove(ObjectReference object) {
     if (Space.isInSpace(NURSERY, object))
@@ -63,6 +63,17 @@ public class GenConstraints extends StopTheWorldConstraints {
     return true;
   }
 
+  @Override
+  public boolean writeBarrierOnlyRemembersNurseryReferences() {
+    return true;
+  }
+
+  @Override
+  public boolean putfieldBarrierTestsUnloggedBit() {
+    return Gen.USE_OBJECT_BARRIER_FOR_PUTFIELD &&
+        !Gen.GATHER_WRITE_BARRIER_STATS && !Gen.GATHER_WRITE_BARRIER_PROFILE;
+  }
+
   @Override
   public int numSpecializedScans() {
     return 2;
@@ -20,6 +20,7 @@ import org.mmtk.utility.deque.*;
 import org.mmtk.utility.alloc.Allocator;
 import org.mmtk.utility.statistics.Stats;
 import org.mmtk.vm.VM;
+import static org.mmtk.plan.generational.Gen.USE_ADAPTIVE_FIELD_BARRIER;
 import static org.mmtk.plan.generational.Gen.USE_OBJECT_BARRIER_FOR_AASTORE;
 import static org.mmtk.plan.generational.Gen.USE_OBJECT_BARRIER_FOR_PUTFIELD;
 import static org.mmtk.utility.Constants.*;
@@ -121,24 +122,108 @@ import org.vmmagic.unboxed.*;
    * @param slot The address into which the new reference will be
    * stored.
    * @param tgt The target of the new reference
+   * @param offset The offset of the slot (for an array element, the
+   * offset from the first element)
+   * @param locationMetadata The location metadata for the store (the
+   * field id for a putfield)
    * @param mode The mode of the store (eg putfield, putstatic etc)
    */
   @Inline
-  private void fastPath(ObjectReference src, Address slot, ObjectReference tgt, int mode) {
+  private void fastPath(ObjectReference src, Address slot, ObjectReference tgt, Word offset, Word locationMetadata, int mode) {
     if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.wbFast.inc();
-    if ((mode == ARRAY_ELEMENT && USE_OBJECT_BARRIER_FOR_AASTORE) ||
-        (mode == INSTANCE_FIELD && USE_OBJECT_BARRIER_FOR_PUTFIELD)) {
-      if (HeaderByte.isUnlogged(src)) {
-        if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.wbSlow.inc();
-        HeaderByte.markAsLogged(src);
-        modbuf.insert(src);
+    boolean remembered;
+    if (mode == ARRAY_ELEMENT && Gen.markCards()) {
+      remembered = cardBarrier(src, slot, tgt, offset);
+    } else if ((mode == ARRAY_ELEMENT && USE_OBJECT_BARRIER_FOR_AASTORE) ||
+        (mode == INSTANCE_FIELD && USE_OBJECT_BARRIER_FOR_PUTFIELD) ||
+        ((mode == ARRAY_ELEMENT || mode == INSTANCE_FIELD) && Gen.objectBarrierSelected())) {
+      remembered = objectBarrier(src);
+    } else if (mode == INSTANCE_FIELD && USE_ADAPTIVE_FIELD_BARRIER && !locationMetadata.isZero()) {
+      int field = locationMetadata.toInt();
+      AdaptiveFieldBarrier.recordStore(field);
+      if (AdaptiveFieldBarrier.useObjectBarrier(field)) {
+        remembered = objectBarrier(src);
+      } else {
+        remembered = slotBarrier(slot, tgt);
       }
+      if (remembered) AdaptiveFieldBarrier.recordRemembered(field);
     } else {
-      if (!Gen.inNursery(slot) && Gen.inNursery(tgt)) {
-        if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.wbSlow.inc();
+      remembered = slotBarrier(slot, tgt);
+    }
+    if (Gen.GATHER_WRITE_BARRIER_PROFILE) Gen.profileWriteBarrier(locationMetadata, mode, remembered);
+  }
+
+  /**
+   * Perform the object barrier, logging the source object if it has
+   * not already been logged.
+   *
+   * @param src The object into which the new reference will be stored
+   * @return {@code true} if the object was logged
+   */
+  @Inline
+  private boolean objectBarrier(ObjectReference src) {
+    if (HeaderByte.isUnlogged(src)) {
+      logSource(src);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * The object barrier slow path: log the source object.  This is kept
+   * out of line so that compilers inlining the barrier only emit the
+   * test of the unlogged bit.
+   *
+   * @param src The object into which the new reference will be stored
+   */
+  @NoInline
+  private void logSource(ObjectReference src) {
+    if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.wbSlow.inc();
+    HeaderByte.markAsLogged(src);
+    modbuf.insert(src);
+  }
+
+  /**
+   * Perform the card marking barrier for a store to an array element,
+   * marking the element's card if the new reference points into the
+   * nursery from non-nursery space.  Elements whose card is not entirely
+   * within the array are remembered in the slot remembered set.
+   *
+   * @param src The array into which the new reference will be stored
+   * @param slot The address of the element being written
+   * @param tgt The target of the new reference
+   * @param offset The offset of the element from the first element
+   * @return {@code true} if the store was remembered
+   */
+  @Inline
+  private boolean cardBarrier(ObjectReference src, Address slot, ObjectReference tgt, Word offset) {
+    if (Gen.inNursery(tgt) && !Gen.inNursery(slot)) {
+      if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.wbSlow.inc();
+      Address first = slot.minus(offset.toOffset());
+      if (!CardTable.mark(slot, first, VM.objectModel.getArrayLength(src)))
         remset.insert(slot);
-      }
+      return true;
     }
+    return false;
+  }
+
+  /**
+   * Perform the slot barrier, remembering the slot if the new
+   * reference points into the nursery from non-nursery space.
+   *
+   * @param slot The address into which the new reference will be
+   * stored.
+   * @param tgt The target of the new reference
+   * @return {@code true} if the slot was remembered
+   */
+  @Inline
+  private boolean slotBarrier(Address slot, ObjectReference tgt) {
+    if (!Gen.inNursery(slot) && Gen.inNursery(tgt)) {
+      if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.wbSlow.inc();
+      remset.insert(slot);
+      return true;
+    }
+    return false;
   }
 
   /**
@@ -146,14 +231,18 @@ import org.vmmagic.unboxed.*;
    *
    * In this case, we remember the address of the source of the
    * pointer if the new reference points into the nursery from
-   * non-nursery space.
+   * non-nursery space.  Any barrier selection a compiler encoded in the
+   * location metadata is stripped before the metadata is passed to the
+   * host VM.
    */
   @Override
   @Inline
   public final void objectReferenceWrite(ObjectReference src, Address slot,
       ObjectReference tgt, Word metaDataA,
       Word metaDataB, int mode) {
-    fastPath(src, slot, tgt, mode);
+    fastPath(src, slot, tgt, metaDataA, metaDataB, mode);
+    if (USE_ADAPTIVE_FIELD_BARRIER)
+      metaDataB = metaDataB.and(Word.fromIntZeroExtend(AdaptiveFieldBarrier.FIELD_ID_MASK));
     VM.barriers.objectReferenceWrite(src, tgt, metaDataA, metaDataB, mode);
   }
 
@@ -203,7 +292,7 @@ import org.vmmagic.unboxed.*;
       Word metaDataA, Word metaDataB, int mode) {
     boolean result = VM.barriers.objectReferenceTryCompareAndSwap(src, old, tgt, metaDataA, metaDataB, mode);
     if (result)
-      fastPath(src, slot, tgt, mode);
+      fastPath(src, slot, tgt, metaDataA, metaDataB, mode);
     return result;
   }
 
@@ -211,14 +300,26 @@ import org.vmmagic.unboxed.*;
    * {@inheritDoc}<p>
    *
    * In this case, we remember the mutated source address range and
-   * will scan that address range at GC time.
+   * will scan that address range at GC time.  When card marking, the
+   * cards entirely within the range are marked instead, and only the
+   * partial cards at either end are remembered as ranges.
    */
   @Inline
   @Override
   public final boolean objectReferenceBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
     if (!Gen.inNursery(dst)) {
       Address start = dst.toAddress().plus(dstOffset);
-      arrayRemset.insert(start, start.plus(bytes));
+      Address end = start.plus(bytes);
+      if (Gen.markCards()) {
+        Address first = CardTable.markRange(start, end);
+        if (first.NE(end)) {
+          if (first.GT(start)) arrayRemset.insert(start, first);
+          Address limit = CardTable.cardStart(end);
+          if (limit.LT(end)) arrayRemset.insert(limit, end);
+          return false;
+        }
+      }
+      arrayRemset.insert(start, end);
     }
     return false;
   }
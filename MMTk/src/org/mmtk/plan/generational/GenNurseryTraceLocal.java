@@ -13,7 +13,9 @@
 package org.mmtk.plan.generational;
 
 import static org.mmtk.utility.Constants.BYTES_IN_ADDRESS;
+import static org.mmtk.utility.Constants.LOG_BYTES_IN_ADDRESS;
 
+import org.mmtk.plan.CollectorContext;
 import org.mmtk.plan.TraceLocal;
 import org.mmtk.plan.Trace;
 import org.mmtk.utility.HeaderByte;
@@ -41,6 +43,8 @@ public final class GenNurseryTraceLocal extends TraceLocal {
   private final ObjectReferenceDeque modbuf;
   private final AddressDeque remset;
   private final AddressPairDeque arrayRemset;
+  /** Has this collector scanned its share of the card table in this collection? */
+  private boolean cardsScanned;
 
   /**
    * @param trace the global trace class to use
@@ -80,6 +84,12 @@ public final class GenNurseryTraceLocal extends TraceLocal {
     return object;
   }
 
+  @Override
+  public void prepare() {
+    super.prepare();
+    cardsScanned = false;
+  }
+
   /**
    * Process any remembered set entries.
    */
@@ -90,6 +100,7 @@ public final class GenNurseryTraceLocal extends TraceLocal {
     ObjectReference obj;
     while (!(obj = modbuf.pop()).isNull()) {
       if (VM.DEBUG) VM.debugging.modbufEntry(obj);
+      if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.remsetEntries.inc();
       HeaderByte.markAsUnlogged(obj);
       scanObject(obj);
     }
@@ -97,6 +108,7 @@ public final class GenNurseryTraceLocal extends TraceLocal {
     while (!remset.isEmpty()) {
       Address loc = remset.pop();
       if (VM.DEBUG) VM.debugging.remsetEntry(loc);
+      if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.remsetEntries.inc();
       processRootEdge(loc, false);
     }
     logMessage(5, "processing array remset");
@@ -105,11 +117,19 @@ public final class GenNurseryTraceLocal extends TraceLocal {
       Address start = arrayRemset.pop1();
       Address guard = arrayRemset.pop2();
       if (VM.DEBUG) VM.debugging.arrayRemsetEntry(start,guard);
+      if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.remsetEntries.inc(guard.diff(start).toInt() >> LOG_BYTES_IN_ADDRESS);
       while (start.LT(guard)) {
         processRootEdge(start, false);
         start = start.plus(BYTES_IN_ADDRESS);
       }
     }
+    if (Gen.markCards() && !cardsScanned) {
+      logMessage(5, "processing card table");
+      CollectorContext collector = VM.activePlan.collector();
+      int cards = CardTable.scan(this, collector.parallelWorkerOrdinal(), collector.parallelWorkerCount());
+      if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.remsetEntries.inc(cards << (CardTable.LOG_BYTES_IN_CARD - LOG_BYTES_IN_ADDRESS));
+      cardsScanned = true;
+    }
   }
 
   /**
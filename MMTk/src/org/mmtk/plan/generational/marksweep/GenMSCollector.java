@@ -130,6 +130,7 @@ public class GenMSCollector extends GenCollector {
 
       if (phaseId == GenMS.RELEASE) {
         matureTrace.release();
+        GenMS.msSpace.sweep();
         if (global().gcFullHeap) {
           mature.release();
         }
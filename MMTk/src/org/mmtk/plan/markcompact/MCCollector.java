@@ -80,6 +80,7 @@ public class MCCollector extends StopTheWorldCollector {
       currentTrace = TRACE_MARK;
       super.collectionPhase(phaseId, primary);
       markTrace.prepare();
+      mc.prepare();
       return;
     }
 
@@ -70,6 +70,7 @@ public class MSCollector extends StopTheWorldCollector {
 
     if (phaseId == MS.RELEASE) {
       fullTrace.release();
+      MS.msSpace.sweep();
       super.collectionPhase(phaseId, primary);
       return;
     }
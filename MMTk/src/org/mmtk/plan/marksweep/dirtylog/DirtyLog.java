@@ -0,0 +1,128 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.marksweep.dirtylog;
+
+import org.mmtk.plan.Phase;
+import org.mmtk.plan.marksweep.MS;
+import org.mmtk.utility.deque.SharedDeque;
+import org.mmtk.utility.statistics.EventCounter;
+import org.mmtk.utility.statistics.SizeCounter;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This class implements the global state of a mark-sweep collector
+ * that tracks the objects dirtied by the mutators between collections,
+ * as a basis for incremental heap snapshots or checkpoints.<p>
+ *
+ * Every reference and primitive store to a heap object goes through an
+ * object barrier (see {@link DirtyLogMutator}).  The first store to an
+ * object after a collection finds the object's unlogged bit set, clears
+ * it, and records the object in a per-mutator dirty log.  Objects
+ * allocated since the last collection are logged when they are
+ * allocated.  Subsequent stores to a logged object only test the bit.<p>
+ *
+ * Each collection is a checkpoint: with all mutators stopped, and once
+ * liveness is known, the collectors drain the dirty logs in their own
+ * phase ({@link #PROCESS_DIRTY_LOG}), ahead of the release phases, and
+ * pass each live dirty object to
+ * {@link DirtyLogCollector#countDirtyObject}, so a snapshot need only
+ * copy the objects modified since the previous one.  Dead objects are
+ * dropped from the logs, and the mark-sweep space is non-moving, so
+ * object addresses are stable between checkpoints.  Marking sets the
+ * unlogged bit of every live object, which re-arms the barrier for the
+ * next interval.  A checkpoint can be taken on demand by requesting a
+ * collection.<p>
+ *
+ * The plan reserves the unlogged bit through
+ * {@link org.mmtk.plan.PlanConstraints#needsUnloggedBit()}, so the
+ * mark-sweep space keeps its ordinary (non-sticky) mark bits.<p>
+ *
+ * Static fields are not part of the heap, so stores to them are not
+ * logged.
+ */
+@Uninterruptible
+public class DirtyLog extends MS {
+
+  /****************************************************************************
+   * Class variables
+   */
+
+  /* Statistics */
+
+  /**
+   *
+   */
+  static final EventCounter dirtyObjects = new EventCounter("dirtyObjects");
+  static final SizeCounter dirtyBytes = new SizeCounter("dirtyBytes");
+
+  /* Phases */
+  public static final short PROCESS_DIRTY_LOG = Phase.createSimple("dirty-log");
+
+  // CHECKSTYLE:OFF
+
+  /**
+   * This is the phase that is executed to perform a collection.  The
+   * dirty logs are drained once the closure is complete, while every
+   * mark is still valid and before any release or sweep.
+   */
+  public short dirtyLogCollection = Phase.createComplex("collection", null,
+      Phase.scheduleComplex  (initPhase),
+      Phase.scheduleComplex  (rootClosurePhase),
+      Phase.scheduleComplex  (refTypeClosurePhase),
+      Phase.scheduleComplex  (forwardPhase),
+      Phase.scheduleCollector(PROCESS_DIRTY_LOG),
+      Phase.scheduleComplex  (completeClosurePhase),
+      Phase.scheduleComplex  (finishPhase));
+
+  // CHECKSTYLE:ON
+
+  /****************************************************************************
+   * Instance variables
+   */
+
+  /** The shared pool of dirty object logs */
+  public final SharedDeque dirtyPool = new SharedDeque("dirtyLogs", metaDataSpace, 1);
+
+  /**
+   * Constructor.
+   */
+  public DirtyLog() {
+    collection = dirtyLogCollection;
+  }
+
+  /*****************************************************************************
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Inline
+  @Override
+  public void collectionPhase(short phaseId) {
+    if (phaseId == PREPARE) {
+      dirtyPool.prepareNonBlocking();
+      super.collectionPhase(phaseId);
+      return;
+    }
+
+    if (phaseId == RELEASE) {
+      dirtyPool.reset();
+      super.collectionPhase(phaseId);
+      return;
+    }
+
+    super.collectionPhase(phaseId);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.marksweep.dirtylog;
+
+import org.mmtk.plan.marksweep.MSCollector;
+import org.mmtk.utility.HeaderByte;
+import org.mmtk.utility.deque.ObjectReferenceDeque;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements <i>per-collector thread</i> behavior and state
+ * for the {@link DirtyLog} plan.<p>
+ *
+ * In the {@link DirtyLog#PROCESS_DIRTY_LOG} phase, once the mark-sweep
+ * trace is complete and before the release phases, each collector takes
+ * a share of the mutators' dirty logs and passes every live dirty object
+ * to {@link #countDirtyObject(ObjectReference)}.
+ *
+ * @see DirtyLog
+ * @see DirtyLogMutator
+ * @see org.mmtk.plan.marksweep.MSCollector
+ */
+@Uninterruptible
+public class DirtyLogCollector extends MSCollector {
+
+  /****************************************************************************
+   * Instance fields
+   */
+
+  /** This collector's view of the shared pool of dirty object logs */
+  private final ObjectReferenceDeque dirtyLog = new ObjectReferenceDeque("dirtyLog", global().dirtyPool);
+
+  /****************************************************************************
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Inline
+  @Override
+  public void collectionPhase(short phaseId, boolean primary) {
+    if (phaseId == DirtyLog.PROCESS_DIRTY_LOG) {
+      processDirtyLog();
+      return;
+    }
+
+    super.collectionPhase(phaseId, primary);
+  }
+
+  /**
+   * Drain the dirty object logs, counting each live object.  Dead
+   * objects are about to be swept, so they are simply dropped.  Each
+   * live object is marked as unlogged so that the next store to it is
+   * logged again.
+   */
+  private void processDirtyLog() {
+    ObjectReference object;
+    while (!(object = dirtyLog.pop()).isNull()) {
+      if (getCurrentTrace().isLive(object)) {
+        countDirtyObject(object);
+        HeaderByte.markAsUnlogged(object);
+      }
+    }
+  }
+
+  /**
+   * Count an object modified since the last checkpoint in the
+   * <code>dirtyObjects</code> and <code>dirtyBytes</code> statistics.
+   * This is called for each live object that was allocated or written
+   * since the previous collection, while all mutators are stopped (more
+   * than once if mutators raced to log the object).  It does not copy
+   * the object; a subclass that takes snapshots overrides this method
+   * to copy the object's state, and calls it to keep the statistics.
+   *
+   * @param object The dirty object
+   */
+  protected void countDirtyObject(ObjectReference object) {
+    DirtyLog.dirtyObjects.inc();
+    DirtyLog.dirtyBytes.inc(VM.objectModel.getCurrentSize(object));
+  }
+
+  /****************************************************************************
+   * Miscellaneous
+   */
+
+  /** @return The active global plan as a <code>DirtyLog</code> instance. */
+  @Inline
+  private static DirtyLog global() {
+    return (DirtyLog) VM.activePlan.global();
+  }
+}
@@ -0,0 +1,490 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.marksweep.dirtylog;
+
+import org.mmtk.plan.marksweep.MSMutator;
+import org.mmtk.utility.HeaderByte;
+import org.mmtk.utility.deque.ObjectReferenceDeque;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements <i>per-mutator thread</i> behavior and state
+ * for the {@link DirtyLog} plan.<p>
+ *
+ * Specifically, this class defines the object barrier applied to every
+ * reference and primitive store, which records each object in this
+ * mutator's dirty log the first time it is written after a checkpoint,
+ * and logs newly allocated objects.
+ *
+ * @see DirtyLog
+ * @see DirtyLogCollector
+ * @see org.mmtk.plan.marksweep.MSMutator
+ */
+@Uninterruptible
+public class DirtyLogMutator extends MSMutator {
+
+  /****************************************************************************
+   * Instance fields
+   */
+
+  /** The objects dirtied by this mutator since the last checkpoint */
+  private final ObjectReferenceDeque dirtyLog;
+
+  /****************************************************************************
+   * Initialization
+   */
+
+  /**
+   * Constructor
+   */
+  public DirtyLogMutator() {
+    dirtyLog = new ObjectReferenceDeque("dirtyLog", global().dirtyPool);
+  }
+
+  /****************************************************************************
+   * Mutator-time allocation
+   */
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Objects allocated since the last checkpoint are part of the next
+   * one, so every new object is logged.
+   */
+  @Inline
+  @Override
+  public void postAlloc(ObjectReference ref, ObjectReference typeRef,
+      int bytes, int allocator) {
+    super.postAlloc(ref, typeRef, bytes, allocator);
+    HeaderByte.markAsLogged(ref);
+    dirtyLog.insert(ref);
+  }
+
+  /****************************************************************************
+   * Barriers
+   */
+
+  /**
+   * Log an object if this is the first store to it since the last
+   * checkpoint.
+   *
+   * @param src The object being written
+   */
+  @Inline
+  private void logIfUnlogged(ObjectReference src) {
+    if (HeaderByte.isUnlogged(src)) {
+      logObject(src);
+    }
+  }
+
+  /**
+   * The first store to an object since the last checkpoint: mark it as
+   * logged, so later stores to it skip the log until the next checkpoint
+   * resets the bit, and add it to this mutator's dirty log.
+   *
+   * @param src The object being written
+   */
+  @NoInline
+  private void logObject(ObjectReference src) {
+    HeaderByte.markAsLogged(src);
+    dirtyLog.insert(src);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void objectReferenceWrite(ObjectReference src, Address slot, ObjectReference value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.objectReferenceWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the destination array.
+   */
+  @Inline
+  @Override
+  public boolean objectReferenceBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
+    logIfUnlogged(dst);
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object before attempting the swap.
+   */
+  @Inline
+  @Override
+  public boolean objectReferenceTryCompareAndSwap(ObjectReference src, Address slot, ObjectReference old, ObjectReference tgt, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    return VM.barriers.objectReferenceTryCompareAndSwap(src, old, tgt, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void booleanWrite(ObjectReference src, Address slot, boolean value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.booleanWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the destination array.
+   */
+  @Inline
+  @Override
+  public boolean booleanBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
+    logIfUnlogged(dst);
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void byteWrite(ObjectReference src, Address slot, byte value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.byteWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the destination array.
+   */
+  @Inline
+  @Override
+  public boolean byteBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
+    logIfUnlogged(dst);
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void charWrite(ObjectReference src, Address slot, char value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.charWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the destination array.
+   */
+  @Inline
+  @Override
+  public boolean charBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
+    logIfUnlogged(dst);
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void shortWrite(ObjectReference src, Address slot, short value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.shortWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the destination array.
+   */
+  @Inline
+  @Override
+  public boolean shortBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
+    logIfUnlogged(dst);
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void intWrite(ObjectReference src, Address slot, int value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.intWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the destination array.
+   */
+  @Inline
+  @Override
+  public boolean intBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
+    logIfUnlogged(dst);
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object before attempting the swap.
+   */
+  @Inline
+  @Override
+  public boolean intTryCompareAndSwap(ObjectReference src, Address slot, int old, int value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    return VM.barriers.intTryCompareAndSwap(src, old, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void longWrite(ObjectReference src, Address slot, long value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.longWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the destination array.
+   */
+  @Inline
+  @Override
+  public boolean longBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
+    logIfUnlogged(dst);
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object before attempting the swap.
+   */
+  @Inline
+  @Override
+  public boolean longTryCompareAndSwap(ObjectReference src, Address slot, long old, long value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    return VM.barriers.longTryCompareAndSwap(src, old, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void floatWrite(ObjectReference src, Address slot, float value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.floatWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the destination array.
+   */
+  @Inline
+  @Override
+  public boolean floatBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
+    logIfUnlogged(dst);
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void doubleWrite(ObjectReference src, Address slot, double value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.doubleWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the destination array.
+   */
+  @Inline
+  @Override
+  public boolean doubleBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
+    logIfUnlogged(dst);
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void wordWrite(ObjectReference src, Address slot, Word value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.wordWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object before attempting the swap.
+   */
+  @Inline
+  @Override
+  public boolean wordTryCompareAndSwap(ObjectReference src, Address slot, Word old, Word value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    return VM.barriers.wordTryCompareAndSwap(src, old, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void addressWrite(ObjectReference src, Address slot, Address value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.addressWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object before attempting the swap.
+   */
+  @Inline
+  @Override
+  public boolean addressTryCompareAndSwap(ObjectReference src, Address slot, Address old, Address value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    return VM.barriers.addressTryCompareAndSwap(src, old, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void extentWrite(ObjectReference src, Address slot, Extent value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.extentWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case, we log the source object if this is the first store
+   * to it since the last checkpoint.
+   */
+  @Inline
+  @Override
+  public void offsetWrite(ObjectReference src, Address slot, Offset value, Word metaDataA, Word metaDataB, int mode) {
+    logIfUnlogged(src);
+    VM.barriers.offsetWrite(src, value, metaDataA, metaDataB, mode);
+  }
+
+  @Override
+  public final void flushRememberedSets() {
+    dirtyLog.flushLocal();
+    assertRemsetsFlushed();
+  }
+
+  @Override
+  public final void assertRemsetsFlushed() {
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(dirtyLog.isFlushed());
+    }
+  }
+
+  /****************************************************************************
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Inline
+  @Override
+  public void collectionPhase(short phaseId, boolean primary) {
+    if (phaseId == DirtyLog.PREPARE) {
+      flushRememberedSets();
+      super.collectionPhase(phaseId, primary);
+      return;
+    }
+
+    if (phaseId == DirtyLog.RELEASE) {
+      assertRemsetsFlushed();
+      super.collectionPhase(phaseId, primary);
+      return;
+    }
+
+    super.collectionPhase(phaseId, primary);
+  }
+
+  /****************************************************************************
+   * Miscellaneous
+   */
+
+  /** @return The active global plan as a <code>DirtyLog</code> instance. */
+  @Inline
+  private static DirtyLog global() {
+    return (DirtyLog) VM.activePlan.global();
+  }
+}
@@ -24,6 +24,9 @@ import org.mmtk.utility.Log;
 import org.mmtk.utility.alloc.LinearScan;
 import org.mmtk.utility.deque.SharedDeque;
 import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.utility.options.CycleMetaDataLimit;
+import org.mmtk.utility.options.DecBufferLimit;
+import org.mmtk.utility.options.GCTimeCap;
 import org.mmtk.utility.options.Options;
 import org.mmtk.utility.sanitychecker.SanityChecker;
 import org.mmtk.vm.VM;
@@ -36,7 +39,10 @@ import org.vmmagic.unboxed.ObjectReference;
  * See Shahriyar et al for details of and rationale for the optimizations used
  * here (http://dx.doi.org/10.1145/2258996.2259008).  See Chapter 4 of
  * Daniel Frampton's PhD thesis for details of and rationale for the cycle
- * collection strategy used by this collector.
+ * collection strategy used by this collector.  Plans built to collect
+ * cycles by trial deletion (see
+ * {@link org.mmtk.plan.refcount.trialdeletion.TrialDeletion}) also do so
+ * between backup traces, when the purple buffer reaches its limit.
  */
 @Uninterruptible
 public class RCBase extends StopTheWorld {
@@ -49,12 +55,29 @@ public class RCBase extends StopTheWorld {
   public static final boolean CC_ENABLED           = true;
   /** Force full cycle collection at each GC? */
   public static boolean ccForceFull        = false;
-  /** Use backup tracing for cycle collection (currently the only option) */
+  /** Use backup tracing for cycle collection (always used when memory is exhausted) */
   public static final boolean CC_BACKUP_TRACE      = true;
+  /** Use trial deletion for cycle collection when the purple buffer reaches its limit */
+  public static final boolean CC_TRIAL_DELETION    = ((RCBaseConstraints) VM.activePlan.constraints()).collectCyclesByTrialDeletion();
 
   public static boolean performCycleCollection;
   public static final short BT_CLOSURE             = Phase.createSimple("closure-bt");
 
+  /** Should this collection collect cycles by trial deletion? */
+  public static boolean performTrialDeletion;
+  public static final short TD_COLLECT             = Phase.createSimple("trial-deletion");
+
+  /**
+   * Must this collection process every decrement?  If not, collectors stop
+   * processing decrements at <code>decrementDeadline</code>, leaving the
+   * remainder in the dec pool for a later collection (see {@link GCTimeCap}).
+   */
+  public static boolean drainDecrements = true;
+  /** The time, in nanoseconds, at which collectors defer the remaining decrements */
+  public static long decrementDeadline;
+  /** The time, in nanoseconds, at which this collection started */
+  private static long collectionStart;
+
   /** True if we are building for generational RC */
   public static final boolean BUILD_FOR_GENRC = ((RCBaseConstraints) VM.activePlan.constraints()).buildForGenRC();
 
@@ -74,6 +97,8 @@ public class RCBase extends StopTheWorld {
       Phase.scheduleMutator    (PROCESS_DECBUFFER),
       Phase.scheduleGlobal     (PROCESS_DECBUFFER),
       Phase.scheduleCollector  (PROCESS_DECBUFFER),
+      Phase.scheduleGlobal     (TD_COLLECT),
+      Phase.scheduleCollector  (TD_COLLECT),
       Phase.scheduleGlobal     (BT_CLOSURE),
       Phase.scheduleCollector  (BT_CLOSURE));
 
@@ -85,6 +110,8 @@ public class RCBase extends StopTheWorld {
       Phase.scheduleMutator    (PROCESS_DECBUFFER),
       Phase.scheduleGlobal     (PROCESS_DECBUFFER),
       Phase.scheduleCollector  (PROCESS_DECBUFFER),
+      Phase.scheduleGlobal     (TD_COLLECT),
+      Phase.scheduleCollector  (TD_COLLECT),
       Phase.scheduleGlobal     (BT_CLOSURE),
       Phase.scheduleCollector  (BT_CLOSURE));
 
@@ -153,6 +180,7 @@ public class RCBase extends StopTheWorld {
   public final SharedDeque decPool = new SharedDeque("dec", metaDataSpace, 1);
   public final SharedDeque newRootPool = new SharedDeque("newRoot", metaDataSpace, 1);
   public final SharedDeque oldRootPool = new SharedDeque("oldRoot", metaDataSpace, 1);
+  public final SharedDeque purplePool = new SharedDeque("purple", metaDataSpace, 1);
 
   /*****************************************************************************
    *
@@ -173,6 +201,9 @@ public class RCBase extends StopTheWorld {
   public RCBase() {
     Options.noReferenceTypes.setDefaultValue(true);
     Options.noFinalizer.setDefaultValue(true);
+    Options.gcTimeCap = new GCTimeCap();
+    Options.decBufferLimit = new DecBufferLimit();
+    Options.cycleMetaDataLimit = new CycleMetaDataLimit();
     rootTrace = new Trace(metaDataSpace);
     backupTrace = new Trace(metaDataSpace);
     rcSweeper = new BTSweeper();
@@ -213,11 +244,14 @@ public class RCBase extends StopTheWorld {
   public void collectionPhase(short phaseId) {
     if (phaseId == SET_COLLECTION_KIND) {
       super.collectionPhase(phaseId);
+      collectionStart = VM.statistics.nanoTime();
       if (CC_ENABLED) {
         ccForceFull = Options.fullHeapSystemGC.getValue();
         if (BUILD_FOR_GENRC) performCycleCollection = (collectionAttempt > 1) || emergencyCollection || ccForceFull;
         else performCycleCollection |= (collectionAttempt > 1) || emergencyCollection || ccForceFull;
         if (performCycleCollection && Options.verbose.getValue() > 0) Log.write(" [CC] ");
+        /* a backup trace collects every cycle, and discards the candidates */
+        if (performCycleCollection) performTrialDeletion = false;
       }
       return;
     }
@@ -248,6 +282,17 @@ public class RCBase extends StopTheWorld {
       return;
     }
 
+    if (phaseId == TD_COLLECT) {
+      if (CC_TRIAL_DELETION) {
+        if (CC_BACKUP_TRACE && performCycleCollection) {
+          purplePool.prepare();
+        } else if (performTrialDeletion) {
+          purplePool.prepareNonBlocking();
+        }
+      }
+      return;
+    }
+
     if (phaseId == PROCESS_OLDROOTBUFFER) {
       oldRootPool.prepare();
       return;
@@ -266,6 +311,11 @@ public class RCBase extends StopTheWorld {
 
     if (phaseId == PROCESS_DECBUFFER) {
       decPool.prepare();
+      /* Decrements deferred by earlier collections are still in the pool, so
+       * drain everything once their volume reaches the limit (back-pressure) */
+      drainDecrements = (CC_BACKUP_TRACE && performCycleCollection) || emergencyCollection || collectionAttempt > 1 ||
+          Options.sanityCheck.getValue() || decPool.enqueuedPages() >= Options.decBufferLimit.getPages();
+      decrementDeadline = collectionStart + Options.gcTimeCap.getMicroseconds() * 1000L;
       return;
     }
 
@@ -278,7 +328,13 @@ public class RCBase extends StopTheWorld {
       } else {
         rcSpace.release();
       }
+      /* the backup trace also reclaims objects whose counts are stuck, which trial deletion cannot */
       if (!BUILD_FOR_GENRC) performCycleCollection = getPagesAvail() < Options.cycleTriggerThreshold.getPages();
+      if (CC_TRIAL_DELETION) {
+        /* superseded by the backup trace, if one is scheduled */
+        performTrialDeletion = getPagesAvail() < Options.cycleTriggerThreshold.getPages() ||
+            purplePool.enqueuedPages() >= Options.cycleMetaDataLimit.getPages();
+      }
       return;
     }
 
@@ -18,9 +18,12 @@ import org.mmtk.plan.StopTheWorldCollector;
 import org.mmtk.plan.TraceLocal;
 import org.mmtk.plan.TransitiveClosure;
 import org.mmtk.plan.refcount.backuptrace.BTTraceLocal;
+import org.mmtk.plan.refcount.trialdeletion.TrialDeletion;
 import org.mmtk.policy.Space;
 import org.mmtk.policy.ExplicitFreeListSpace;
+import org.mmtk.utility.Log;
 import org.mmtk.utility.deque.ObjectReferenceDeque;
+import org.mmtk.utility.options.Options;
 import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.Uninterruptible;
@@ -36,6 +39,9 @@ import org.vmmagic.unboxed.ObjectReference;
 @Uninterruptible
 public abstract class RCBaseCollector extends StopTheWorldCollector {
 
+  /** Check the decrement deadline each time this many decrements have been processed */
+  private static final int DEADLINE_CHECK_MASK = (1 << 10) - 1;
+
   /************************************************************************
    * Initialization
    */
@@ -49,6 +55,7 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
   private final ObjectReferenceDeque oldRootBuffer;
   private final RCDecBuffer decBuffer;
   private final RCZero zero;
+  private final TrialDeletion trialDeletion;
 
   /**
    * Constructor.
@@ -60,6 +67,7 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
     decBuffer = new RCDecBuffer(global().decPool);
     backupTrace = new BTTraceLocal(global().backupTrace);
     zero = new RCZero();
+    trialDeletion = RCBase.CC_TRIAL_DELETION ? new TrialDeletion(global().purplePool) : null;
   }
 
   /**
@@ -116,6 +124,21 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
       return;
     }
 
+    if (phaseId == RCBase.TD_COLLECT) {
+      if (RCBase.CC_TRIAL_DELETION) {
+        if (RCBase.CC_BACKUP_TRACE && RCBase.performCycleCollection) {
+          trialDeletion.discardCandidates();
+        } else if (RCBase.performTrialDeletion && primary) {
+          int freed = trialDeletion.collectCycles();
+          if (Options.verbose.getValue() > 0) {
+            Log.write(" [TD ", freed);
+            Log.write("] ");
+          }
+        }
+      }
+      return;
+    }
+
     if (phaseId == RCBase.PROCESS_OLDROOTBUFFER) {
       if (RCBase.CC_BACKUP_TRACE && RCBase.performCycleCollection) return;
       ObjectReference current;
@@ -198,18 +221,11 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
         }
         return;
       }
-      while (!(current = decBuffer.pop()).isNull()) {
+      final boolean drain = RCBase.drainDecrements;
+      int processed = 0;
+      while (!(current = drain ? decBuffer.pop() : decBuffer.popNonBlocking()).isNull()) {
         if (RCBase.BUILD_FOR_GENRC) {
-          if (RCHeader.decRC(current) == RCHeader.DEC_KILL) {
-            decBuffer.processChildren(current);
-            if (Space.isInSpace(RCBase.REF_COUNT, current)) {
-              RCBase.rcSpace.free(current);
-            } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, current)) {
-              RCBase.rcloSpace.free(current);
-            } else if (Space.isInSpace(RCBase.IMMORTAL, current)) {
-              VM.scanning.scanObject(zero, current);
-            }
-          }
+          decrement(current);
         } else {
           if (RCHeader.isNew(current)) {
             if (Space.isInSpace(RCBase.REF_COUNT, current)) {
@@ -220,19 +236,16 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
               VM.scanning.scanObject(zero, current);
             }
           } else {
-            if (RCHeader.decRC(current) == RCHeader.DEC_KILL) {
-              decBuffer.processChildren(current);
-              if (Space.isInSpace(RCBase.REF_COUNT, current)) {
-                RCBase.rcSpace.free(current);
-              } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, current)) {
-                RCBase.rcloSpace.free(current);
-              } else if (Space.isInSpace(RCBase.IMMORTAL, current)) {
-                VM.scanning.scanObject(zero, current);
-              }
-            }
+            decrement(current);
           }
         }
+        if (!drain && (++processed & DEADLINE_CHECK_MASK) == 0 && VM.statistics.nanoTime() > RCBase.decrementDeadline) {
+          break;
+        }
       }
+      /* return any unprocessed decrements to the pool for the next collection */
+      if (!drain) decBuffer.flushLocal();
+      if (RCBase.CC_TRIAL_DELETION) trialDeletion.flush();
       return;
     }
 
@@ -246,7 +259,7 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
       if (VM.VERIFY_ASSERTIONS) {
         VM.assertions._assert(newRootBuffer.isEmpty());
         VM.assertions._assert(modBuffer.isEmpty());
-        VM.assertions._assert(decBuffer.isEmpty());
+        VM.assertions._assert(RCBase.drainDecrements ? decBuffer.isEmpty() : decBuffer.isFlushed());
       }
       return;
     }
@@ -254,6 +267,37 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
     super.collectionPhase(phaseId, primary);
   }
 
+  /**
+   * Decrement the count of an object, freeing it if the count went to
+   * zero and recording it as a possible cycle root otherwise.
+   *
+   * @param object The object whose count is to be decremented
+   */
+  @Inline
+  private void decrement(ObjectReference object) {
+    switch (RCHeader.decRC(object)) {
+      case RCHeader.DEC_KILL:
+        decBuffer.processChildren(object);
+        if (Space.isInSpace(RCBase.REF_COUNT, object)) {
+          RCBase.rcSpace.free(object);
+        } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, object)) {
+          RCBase.rcloSpace.free(object);
+        } else if (Space.isInSpace(RCBase.IMMORTAL, object)) {
+          VM.scanning.scanObject(zero, object);
+        }
+        break;
+      case RCHeader.DEC_KILL_BUFFERED:
+        /* freed by trial deletion, which holds a reference to it */
+        decBuffer.processChildren(object);
+        break;
+      case RCHeader.DEC_BUFFER:
+        trialDeletion.possibleCycleRoot(object);
+        break;
+      default:
+        break;
+    }
+  }
+
   /****************************************************************************
    *
    * Miscellaneous
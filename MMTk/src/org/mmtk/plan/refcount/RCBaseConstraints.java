@@ -49,6 +49,10 @@ public class RCBaseConstraints extends StopTheWorldConstraints {
   public boolean buildForGenRC() {
     return false;
   }
+  /** @return {@code true} if cycles are collected by trial deletion between backup traces */
+  public boolean collectCyclesByTrialDeletion() {
+    return false;
+  }
   @Override
   public boolean referenceTypesUnsupported() { return true; }
 }
@@ -165,7 +165,7 @@ public class RCBaseMutator extends StopTheWorldMutator {
       rc.release();
       if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(modBuffer.isEmpty());
       if (!RCBase.BUILD_FOR_GENRC) {
-        if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(decBuffer.isEmpty());
+        if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(RCBase.drainDecrements ? decBuffer.isEmpty() : decBuffer.isFlushed());
       }
       return;
     }
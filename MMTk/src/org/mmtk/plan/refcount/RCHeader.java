@@ -136,8 +136,24 @@ public class RCHeader {
   public static final int NEW_BIT = MARK_BIT + 1;
   public static final Word NEW_BIT_MASK = Word.one().lsh(NEW_BIT);
 
-  /** Current not using any bits for cycle detection, etc */
-  public static final int BITS_USED = NEW_BIT + 1;
+  /**
+   * The bit used to record that an object is buffered as a possible
+   * cycle root for trial deletion.  While cycles are being collected
+   * no object is buffered, and the bit instead distinguishes the trial
+   * deletion colors (see {@link #GRAY} and {@link #WHITE}).
+   */
+  public static final int BUFFERED_BIT = NEW_BIT + 1;
+  public static final Word BUFFERED_BIT_MASK = Word.one().lsh(BUFFERED_BIT);
+
+  /** The buffered bit is only reserved when trial deletion is in use */
+  public static final int BITS_USED = RCBase.CC_TRIAL_DELETION ? BUFFERED_BIT + 1 : NEW_BIT + 1;
+
+  /* Trial deletion colors, only valid while cycles are being collected */
+
+  public static final Word BLACK = Word.zero();
+  public static final Word GRAY = MARK_BIT_MASK;
+  public static final Word WHITE = MARK_BIT_MASK.or(BUFFERED_BIT_MASK);
+  public static final Word COLOR_MASK = WHITE;
 
   /* Reference counting increments */
 
@@ -150,6 +166,10 @@ public class RCHeader {
 
   public static final int DEC_KILL = 0;
   public static final int DEC_ALIVE = 1;
+  /** The count did not go to zero, and the object is now buffered as a possible cycle root */
+  public static final int DEC_BUFFER = 2;
+  /** The count went to zero, but the object may only be freed by trial deletion */
+  public static final int DEC_KILL_BUFFERED = 3;
 
   /* Return values from incRC */
 
@@ -311,7 +331,16 @@ public class RCHeader {
   /**
    * Decrement the reference count of an object.  Return either
    * <code>DEC_KILL</code> if the count went to zero,
-   * <code>DEC_ALIVE</code> if the count did not go to zero.
+   * <code>DEC_ALIVE</code> if the count did not go to zero.<p>
+   *
+   * When trial deletion is in use, an object whose count does not go to
+   * zero is buffered as a possible cycle root, returning
+   * <code>DEC_BUFFER</code> if the caller must add it to the purple
+   * buffer.  A buffered object whose count goes to zero returns
+   * <code>DEC_KILL_BUFFERED</code>: its children must be decremented,
+   * but the object is freed by trial deletion, since the purple buffer
+   * still refers to it.  Only objects in the reference counted spaces are
+   * buffered.
    *
    * @param object The object whose RC is to be decremented.
    * @return <code>DEC_KILL</code> if the count went to zero,
@@ -326,12 +355,17 @@ public class RCHeader {
       VM.assertions._assert(RCBase.isRCObject(object));
       VM.assertions._assert(isLiveRC(object));
     }
+    /* only objects that trial deletion can free are buffered */
+    boolean buffer = RCBase.CC_TRIAL_DELETION && RCBase.isRCObject(object);
     do {
       oldValue = VM.objectModel.prepareAvailableBits(object);
       if (isStuck(oldValue)) return DEC_ALIVE;
       newValue = oldValue.minus(INCREMENT);
       if (newValue.and(READ_MASK).LT(LIVE_THRESHOLD)) {
-        rtn = DEC_KILL;
+        rtn = (buffer && isHeaderBuffered(oldValue)) ? DEC_KILL_BUFFERED : DEC_KILL;
+      } else if (buffer && !isHeaderBuffered(oldValue)) {
+        newValue = newValue.or(BUFFERED_BIT_MASK);
+        rtn = DEC_BUFFER;
       } else {
         rtn = DEC_ALIVE;
       }
@@ -339,6 +373,98 @@ public class RCHeader {
     return rtn;
   }
 
+  /**
+   * Decrement the reference count of an object during trial deletion,
+   * which runs on a single collector.  The object must not be stuck.
+   *
+   * @param object The object whose RC is to be decremented.
+   */
+  @Inline
+  public static void trialDecRC(ObjectReference object) {
+    Word value = VM.objectModel.readAvailableBitsWord(object);
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(!isStuck(value));
+      VM.assertions._assert(value.and(READ_MASK).GE(LIVE_THRESHOLD));
+    }
+    VM.objectModel.writeAvailableBitsWord(object, value.minus(INCREMENT));
+  }
+
+  /**
+   * Restore a reference count decremented by trial deletion.
+   *
+   * @param object The object whose RC is to be incremented.
+   */
+  @Inline
+  public static void trialIncRC(ObjectReference object) {
+    Word value = VM.objectModel.readAvailableBitsWord(object);
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!isStuck(value.plus(INCREMENT)));
+    VM.objectModel.writeAvailableBitsWord(object, value.plus(INCREMENT));
+  }
+
+  /**
+   * @param object an object
+   * @return whether the object is buffered as a possible cycle root
+   */
+  @Inline
+  public static boolean isBuffered(ObjectReference object) {
+    return isHeaderBuffered(VM.objectModel.readAvailableBitsWord(object));
+  }
+
+  /**
+   * @param header an object's header
+   * @return whether the header is marked as buffered
+   */
+  @Inline
+  private static boolean isHeaderBuffered(Word header) {
+    return header.and(BUFFERED_BIT_MASK).EQ(BUFFERED_BIT_MASK);
+  }
+
+  /**
+   * Clear the buffered status of an object removed from the purple buffer.
+   *
+   * @param object the object
+   */
+  @Inline
+  public static void clearBuffered(ObjectReference object) {
+    Word oldValue, newValue;
+    do {
+      oldValue = VM.objectModel.prepareAvailableBits(object);
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isHeaderBuffered(oldValue));
+      newValue = oldValue.and(BUFFERED_BIT_MASK.not());
+    } while (!VM.objectModel.attemptAvailableBits(object, oldValue, newValue));
+  }
+
+  /**
+   * @param object an object
+   * @return the object's trial deletion color
+   */
+  @Inline
+  public static Word getColor(ObjectReference object) {
+    return VM.objectModel.readAvailableBitsWord(object).and(COLOR_MASK);
+  }
+
+  /**
+   * Set the trial deletion color of an object.  Trial deletion runs on a
+   * single collector, so no synchronization is required.
+   *
+   * @param object the object
+   * @param color the new color
+   */
+  @Inline
+  public static void setColor(ObjectReference object, Word color) {
+    Word value = VM.objectModel.readAvailableBitsWord(object);
+    VM.objectModel.writeAvailableBitsWord(object, value.and(COLOR_MASK.not()).or(color));
+  }
+
+  /**
+   * @param object an object
+   * @return whether the object's reference count is stuck
+   */
+  @Inline
+  public static boolean isStuck(ObjectReference object) {
+    return isStuck(VM.objectModel.readAvailableBitsWord(object));
+  }
+
   /**
    * Initialize the reference count of an object.  Return either
    * <code>INC_OLD</code> if the object is not new,
@@ -13,6 +13,6 @@
 
 /**
  * Provides a collector with deferred reference counting and a backup trace
- * to collect cycles.
+ * to collect cycles, optionally helped by trial deletion.
  */
 package org.mmtk.plan.refcount;
@@ -0,0 +1,60 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.trialdeletion;
+
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.plan.refcount.RCBase;
+import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.utility.deque.ObjectReferenceDeque;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class enumerates the children of an object that take part in
+ * trial deletion, pushing one entry per reference.  Objects outside the
+ * reference counted spaces, objects whose counts are stuck and objects
+ * that have not yet been counted are never part of a garbage cycle, so
+ * they are treated as externally referenced and skipped.
+ */
+@Uninterruptible
+public final class TDChildBuffer extends TransitiveClosure {
+
+  private final ObjectReferenceDeque children;
+
+  /**
+   * @param children the deque to receive the children of each object scanned
+   */
+  public TDChildBuffer(ObjectReferenceDeque children) {
+    this.children = children;
+  }
+
+  @Override
+  @Inline
+  public void processEdge(ObjectReference source, Address slot) {
+    ObjectReference object = slot.loadObjectReference();
+    if (isCandidate(object)) {
+      children.push(object);
+    }
+  }
+
+  /**
+   * @param object an object
+   * @return whether the object takes part in trial deletion
+   */
+  @Inline
+  public static boolean isCandidate(ObjectReference object) {
+    return RCBase.isRCObject(object) && !RCHeader.isStuck(object) &&
+        (RCBase.BUILD_FOR_GENRC || !RCHeader.isNew(object));
+  }
+}
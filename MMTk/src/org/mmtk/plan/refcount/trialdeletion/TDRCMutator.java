@@ -0,0 +1,24 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.trialdeletion;
+
+import org.mmtk.plan.refcount.fullheap.RCMutator;
+import org.vmmagic.pragma.*;
+
+/**
+ * This class implements the mutator context for a reference counting
+ * collector that collects cycles by trial deletion.
+ */
+@Uninterruptible
+public class TDRCMutator extends RCMutator {
+}
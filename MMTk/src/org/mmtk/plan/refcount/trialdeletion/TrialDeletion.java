@@ -0,0 +1,315 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.trialdeletion;
+
+import org.mmtk.plan.Plan;
+import org.mmtk.plan.refcount.RCBase;
+import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.deque.ObjectReferenceDeque;
+import org.mmtk.utility.deque.SharedDeque;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements the collector context for synchronous trial
+ * deletion (Bacon and Rajan, ECOOP 2001).<p>
+ *
+ * Each decrement that leaves a non-zero count buffers the object in the
+ * purple buffer as a possible cycle root (see
+ * {@link RCHeader#decRC(ObjectReference)}).  When cycles are collected,
+ * a single collector subtracts the references internal to the subgraphs
+ * reachable from the candidates (<i>mark gray</i>), restores the counts
+ * of any object still referenced from outside those subgraphs (<i>scan</i>),
+ * and frees the remainder (<i>collect white</i>).  Unlike the backup
+ * trace, the work is proportional to the subgraphs reachable from the
+ * candidates rather than to the heap.<p>
+ *
+ * Decrements deferred to a later collection only over-estimate counts,
+ * so a partially processed dec buffer makes trial deletion conservative
+ * rather than unsafe.  Objects with stuck counts are never collected,
+ * and remain for the backup trace.
+ */
+@Uninterruptible
+public final class TrialDeletion {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** The number of objects freed by trial deletion since the VM started */
+  private static int totalFreed;
+
+  /****************************************************************************
+   *
+   * Instance fields
+   */
+
+  /** Possible cycle roots recorded by this collector */
+  private final ObjectReferenceDeque purpleBuffer;
+
+  /* Work queues, used only by the collector that collects cycles */
+  private final ObjectReferenceDeque roots;
+  private final ObjectReferenceDeque scannedRoots;
+  private final ObjectReferenceDeque work;
+  private final ObjectReferenceDeque blackWork;
+  private final ObjectReferenceDeque children;
+  private final ObjectReferenceDeque white;
+  private final SharedDeque rootsPool = new SharedDeque("td-roots", Plan.metaDataSpace, 1);
+  private final SharedDeque scannedRootsPool = new SharedDeque("td-scanned", Plan.metaDataSpace, 1);
+  private final SharedDeque workPool = new SharedDeque("td-work", Plan.metaDataSpace, 1);
+  private final SharedDeque blackWorkPool = new SharedDeque("td-black", Plan.metaDataSpace, 1);
+  private final SharedDeque childrenPool = new SharedDeque("td-children", Plan.metaDataSpace, 1);
+  private final SharedDeque whitePool = new SharedDeque("td-white", Plan.metaDataSpace, 1);
+
+  private final TDChildBuffer childBuffer;
+
+  /**
+   * Constructor
+   *
+   * @param purplePool The shared pool of possible cycle roots
+   */
+  public TrialDeletion(SharedDeque purplePool) {
+    purpleBuffer = new ObjectReferenceDeque("purple", purplePool);
+    roots = new ObjectReferenceDeque("td-roots", rootsPool);
+    scannedRoots = new ObjectReferenceDeque("td-scanned", scannedRootsPool);
+    work = new ObjectReferenceDeque("td-work", workPool);
+    blackWork = new ObjectReferenceDeque("td-black", blackWorkPool);
+    children = new ObjectReferenceDeque("td-children", childrenPool);
+    white = new ObjectReferenceDeque("td-white", whitePool);
+    childBuffer = new TDChildBuffer(children);
+  }
+
+  /****************************************************************************
+   *
+   * Candidates
+   */
+
+  /**
+   * Record an object whose count was decremented to a non-zero value.
+   *
+   * @param object The possible cycle root, already marked as buffered
+   */
+  @Inline
+  public void possibleCycleRoot(ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(RCBase.isRCObject(object));
+      VM.assertions._assert(RCHeader.isBuffered(object));
+    }
+    purpleBuffer.push(object);
+  }
+
+  /**
+   * Flush the locally buffered candidates to the shared pool.
+   */
+  public void flush() {
+    purpleBuffer.flushLocal();
+  }
+
+  /**
+   * Discard all candidates before a backup trace, which recomputes every
+   * count and frees every unreachable object, including buffered ones.
+   * All collectors take part.
+   */
+  public void discardCandidates() {
+    ObjectReference object;
+    while (!(object = purpleBuffer.pop()).isNull()) {
+      RCHeader.clearBuffered(object);
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * Collect the garbage cycles reachable from the candidates.  Called on
+   * a single collector, once the purple pool has been prepared for
+   * non-blocking processing.
+   *
+   * @return The number of objects freed
+   */
+  public int collectCycles() {
+    rootsPool.prepareNonBlocking();
+    scannedRootsPool.prepareNonBlocking();
+    workPool.prepareNonBlocking();
+    blackWorkPool.prepareNonBlocking();
+    childrenPool.prepareNonBlocking();
+    whitePool.prepareNonBlocking();
+
+    int freed = 0;
+    ObjectReference object;
+
+    /* Free the candidates that died while buffered, and retain the rest */
+    while (!(object = purpleBuffer.pop()).isNull()) {
+      RCHeader.clearBuffered(object);
+      if (RCHeader.isStuck(object)) continue;
+      if (RCHeader.getRC(object) == 0) {
+        free(object);
+        freed++;
+      } else {
+        roots.push(object);
+      }
+    }
+
+    /* Mark gray, removing roots already reached from an earlier root */
+    while (!(object = roots.pop()).isNull()) {
+      if (RCHeader.getColor(object).NE(RCHeader.GRAY)) {
+        markGray(object);
+        scannedRoots.push(object);
+      }
+    }
+
+    /* Scan */
+    while (!(object = scannedRoots.pop()).isNull()) {
+      scan(object);
+      roots.push(object);
+    }
+
+    /* Collect white */
+    while (!(object = roots.pop()).isNull()) {
+      collectWhite(object);
+    }
+    while (!(object = white.pop()).isNull()) {
+      free(object);
+      freed++;
+    }
+
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(work.isEmpty());
+      VM.assertions._assert(blackWork.isEmpty());
+      VM.assertions._assert(children.isEmpty());
+    }
+    totalFreed += freed;
+    return freed;
+  }
+
+  /** @return The number of objects freed by trial deletion so far */
+  public static int totalFreed() {
+    return totalFreed;
+  }
+
+  /**
+   * Color the subgraph reachable from a root gray, subtracting the
+   * count contributed by each reference within it.
+   *
+   * @param root The root of the subgraph
+   */
+  private void markGray(ObjectReference root) {
+    RCHeader.setColor(root, RCHeader.GRAY);
+    work.push(root);
+    ObjectReference object;
+    while (!(object = work.pop()).isNull()) {
+      VM.scanning.scanObject(childBuffer, object);
+      ObjectReference child;
+      while (!(child = children.pop()).isNull()) {
+        RCHeader.trialDecRC(child);
+        if (RCHeader.getColor(child).NE(RCHeader.GRAY)) {
+          RCHeader.setColor(child, RCHeader.GRAY);
+          work.push(child);
+        }
+      }
+    }
+  }
+
+  /**
+   * Color each gray object reachable from a root white if its count fell
+   * to zero, or otherwise restore the subgraph reachable from it.
+   *
+   * @param root The root of the subgraph
+   */
+  private void scan(ObjectReference root) {
+    work.push(root);
+    ObjectReference object;
+    while (!(object = work.pop()).isNull()) {
+      if (RCHeader.getColor(object).EQ(RCHeader.GRAY)) {
+        if (RCHeader.getRC(object) > 0) {
+          scanBlack(object);
+        } else {
+          RCHeader.setColor(object, RCHeader.WHITE);
+          VM.scanning.scanObject(childBuffer, object);
+          ObjectReference child;
+          while (!(child = children.pop()).isNull()) {
+            work.push(child);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Color the subgraph reachable from an externally referenced object
+   * black, restoring the counts subtracted by {@link #markGray}.
+   *
+   * @param root The externally referenced object
+   */
+  private void scanBlack(ObjectReference root) {
+    RCHeader.setColor(root, RCHeader.BLACK);
+    blackWork.push(root);
+    ObjectReference object;
+    while (!(object = blackWork.pop()).isNull()) {
+      VM.scanning.scanObject(childBuffer, object);
+      ObjectReference child;
+      while (!(child = children.pop()).isNull()) {
+        RCHeader.trialIncRC(child);
+        if (RCHeader.getColor(child).NE(RCHeader.BLACK)) {
+          RCHeader.setColor(child, RCHeader.BLACK);
+          blackWork.push(child);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gather the white objects reachable from a root for freeing, coloring
+   * them black again.
+   *
+   * @param root The root of the subgraph
+   */
+  private void collectWhite(ObjectReference root) {
+    if (RCHeader.getColor(root).NE(RCHeader.WHITE)) return;
+    RCHeader.setColor(root, RCHeader.BLACK);
+    work.push(root);
+    ObjectReference object;
+    while (!(object = work.pop()).isNull()) {
+      white.push(object);
+      VM.scanning.scanObject(childBuffer, object);
+      ObjectReference child;
+      while (!(child = children.pop()).isNull()) {
+        if (RCHeader.getColor(child).EQ(RCHeader.WHITE)) {
+          RCHeader.setColor(child, RCHeader.BLACK);
+          work.push(child);
+        }
+      }
+    }
+  }
+
+  /**
+   * Free a garbage object.  The counts of its children have already been
+   * decremented.
+   *
+   * @param object The object to free
+   */
+  private static void free(ObjectReference object) {
+    if (Space.isInSpace(RCBase.REF_COUNT, object)) {
+      RCBase.rcSpace.free(object);
+    } else {
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Space.isInSpace(RCBase.REF_COUNT_LOS, object));
+      RCBase.rcloSpace.free(object);
+    }
+  }
+}
@@ -0,0 +1,19 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+
+/**
+ * Provides a synchronous trial deletion cycle collector for the reference
+ * counting plans (Bacon and Rajan, ECOOP 2001), and a full heap reference
+ * counting plan that uses it.
+ */
+package org.mmtk.plan.refcount.trialdeletion;
@@ -97,6 +97,7 @@ public class StickyMSCollector extends MSCollector {
 
       if (phaseId == StickyMS.RELEASE) {
         nurseryTrace.release();
+        StickyMS.msSpace.sweep();
         global().modPool.reset();
         return;
       }
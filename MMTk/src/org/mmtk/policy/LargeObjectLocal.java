@@ -97,7 +97,9 @@ public final class LargeObjectLocal extends LargeObjectAllocator {
   public void gcspyGatherData(int event, TreadmillDriver losDriver) {
     // TODO: assumes single threaded
     // TODO: assumes non-explit LOS
-    ((LargeObjectSpace)space).getTreadmill().gcspyGatherData(event, losDriver);
+    for (int i = 0; i < LargeObjectSpace.TREADMILLS; i++) {
+      ((LargeObjectSpace)space).getTreadmill(i).gcspyGatherData(event, losDriver);
+    }
   }
 
   /**
@@ -108,6 +110,8 @@ public final class LargeObjectLocal extends LargeObjectAllocator {
    */
   public void gcspyGatherData(int event, TreadmillDriver losDriver, boolean tospace) {
     // TODO: assumes single threaded
-    ((LargeObjectSpace)space).getTreadmill().gcspyGatherData(event, losDriver, tospace);
+    for (int i = 0; i < LargeObjectSpace.TREADMILLS; i++) {
+      ((LargeObjectSpace)space).getTreadmill(i).gcspyGatherData(event, losDriver, tospace);
+    }
   }
 }
@@ -20,6 +20,7 @@ import org.mmtk.utility.heap.VMRequest;
 import org.mmtk.utility.HeaderByte;
 import org.mmtk.utility.Treadmill;
 
+import org.mmtk.vm.Lock;
 import org.mmtk.vm.VM;
 
 import org.vmmagic.pragma.*;
@@ -27,7 +28,13 @@ import org.vmmagic.unboxed.*;
 
 /**
  * Each instance of this class corresponds to one explicitly managed
- * large object space.
+ * large object space.<p>
+ *
+ * Objects are spread over a number of treadmills by the address of their
+ * superpage, so that the treadmills may be swept in parallel by the
+ * collector threads (see {@link #sweep()}), and so that allocation and
+ * tracing contend for different locks.  The pages of the dead objects
+ * found by each sweep are returned to the page resource in one batch.
  */
 @Uninterruptible
 public final class LargeObjectSpace extends BaseLargeObjectSpace {
@@ -46,6 +53,10 @@ public final class LargeObjectSpace extends BaseLargeObjectSpace {
   private static final byte NURSERY_BIT =  2; // ...10
   private static final byte LOS_BIT_MASK = 3; // ...11
 
+  /** The number of treadmills, which must be a power of two */
+  private static final int LOG_TREADMILLS = 4;
+  public static final int TREADMILLS = 1 << LOG_TREADMILLS;
+
   /****************************************************************************
    *
    * Instance variables
@@ -56,7 +67,13 @@ public final class LargeObjectSpace extends BaseLargeObjectSpace {
    */
   private byte markState;
   private boolean inNurseryGC;
-  private final Treadmill treadmill;
+  private final Treadmill[] treadmills = new Treadmill[TREADMILLS];
+  /** Protects the claiming of treadmills to sweep */
+  private final Lock sweepLock;
+  /** The next treadmill to be swept, or {@link #TREADMILLS} if none remain */
+  private int nextTreadmillToSweep = TREADMILLS;
+  /** Is the mature space to be swept, as well as the nursery? */
+  private boolean sweepFullHeap;
 
   /****************************************************************************
    *
@@ -86,7 +103,10 @@ public final class LargeObjectSpace extends BaseLargeObjectSpace {
    */
   public LargeObjectSpace(String name, boolean zeroed, VMRequest vmRequest) {
     super(name, zeroed, vmRequest);
-    treadmill = new Treadmill(LOG_BYTES_IN_PAGE, true);
+    for (int i = 0; i < TREADMILLS; i++) {
+      treadmills[i] = new Treadmill(LOG_BYTES_IN_PAGE, true);
+    }
+    sweepLock = VM.newLock(name + ".sweep");
     markState = 0;
   }
 
@@ -105,40 +125,89 @@ public final class LargeObjectSpace extends BaseLargeObjectSpace {
   public void prepare(boolean fullHeap) {
     if (fullHeap) {
       if (VM.VERIFY_ASSERTIONS) {
-        VM.assertions._assert(treadmill.fromSpaceEmpty());
+        for (int i = 0; i < TREADMILLS; i++) {
+          VM.assertions._assert(treadmills[i].fromSpaceEmpty());
+        }
       }
       markState = (byte) (MARK_BIT - markState);
     }
-    treadmill.flip(fullHeap);
+    for (int i = 0; i < TREADMILLS; i++) {
+      treadmills[i].flip(fullHeap);
+    }
     inNurseryGC = !fullHeap;
+    sweepFullHeap = fullHeap;
+    nextTreadmillToSweep = 0;
+  }
+
+  /**
+   * Sweep a share of the treadmills.  This is designed to be called in
+   * parallel by the collector threads in their SWEEP_LOS phase, each of
+   * which claims treadmills to sweep until none remain.  That phase
+   * follows a rendezvous after RELEASE, since releasing may still read the
+   * headers of large objects that the sweep frees.  Any treadmills
+   * not swept here are swept when the space is released, and it does
+   * nothing if the space was not prepared for this collection.
+   */
+  public void sweep() {
+    Address dead = Address.zero();
+    int index;
+    while ((index = claimTreadmill()) < TREADMILLS) {
+      Treadmill treadmill = treadmills[index];
+      dead = gatherDeadPages(treadmill, treadmill.detachNursery(), dead);
+      if (sweepFullHeap) dead = gatherDeadPages(treadmill, treadmill.detachFromSpace(), dead);
+    }
+    if (!dead.isZero()) ((FreeListPageResource) pr).releasePageList(dead);
   }
 
   /**
    * A new collection increment has completed.  For the mark-sweep
-   * collector this means we can perform the sweep phase.
+   * collector this means we can perform the sweep phase, sweeping
+   * any treadmills not already swept in parallel.
    *
    * @param fullHeap whether the collection was full heap
    */
   public void release(boolean fullHeap) {
-    // sweep the large objects
-    sweepLargePages(true);                // sweep the nursery
-    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(treadmill.nurseryEmpty());
-    if (fullHeap) sweepLargePages(false); // sweep the mature space
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(fullHeap == sweepFullHeap);
+    sweep();
+    if (VM.VERIFY_ASSERTIONS) {
+      for (int i = 0; i < TREADMILLS; i++) {
+        VM.assertions._assert(treadmills[i].nurseryEmpty());
+        VM.assertions._assert(!fullHeap || treadmills[i].fromSpaceEmpty());
+      }
+    }
   }
 
   /**
-   * Sweeps through the large pages, releasing all superpages on the
-   * "from space" treadmill.
+   * @return The index of an unswept treadmill, now claimed by the caller,
+   * or {@link #TREADMILLS} if none remain
+   */
+  private int claimTreadmill() {
+    sweepLock.acquire();
+    int index = nextTreadmillToSweep;
+    if (index < TREADMILLS) nextTreadmillToSweep++;
+    sweepLock.release();
+    return index;
+  }
+
+  /**
+   * Relink the superpages of a list of dead objects detached from a
+   * treadmill through their first word, prepending them to a list of
+   * pages to be released together.
    *
-   * @param sweepNursery whether to sweep the nursery
+   * @param treadmill The treadmill from which the list was detached
+   * @param node The first node of the detached list
+   * @param dead The first superpage of the pages already gathered
+   * @return The first superpage of the combined list
    */
-  private void sweepLargePages(boolean sweepNursery) {
-    while (true) {
-      Address cell = sweepNursery ? treadmill.popNursery() : treadmill.pop();
-      if (cell.isZero()) break;
-      release(getSuperPage(cell));
+  private static Address gatherDeadPages(Treadmill treadmill, Address node, Address dead) {
+    while (!node.isZero()) {
+      Address next = treadmill.getNext(node);
+      Address superPage = getSuperPage(node);
+      superPage.store(dead);
+      dead = superPage;
+      node = next;
     }
-    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(sweepNursery ? treadmill.nurseryEmpty() : treadmill.fromSpaceEmpty());
+    return dead;
   }
 
   @Override
@@ -202,7 +271,7 @@ public final class LargeObjectSpace extends BaseLargeObjectSpace {
 
     Address cell = VM.objectModel.objectStartRef(object);
     Address node = Treadmill.midPayloadToNode(cell);
-    treadmill.copy(node, nurseryObject);
+    getTreadmill(node).copy(node, nurseryObject);
   }
 
   /****************************************************************************
@@ -225,7 +294,8 @@ public final class LargeObjectSpace extends BaseLargeObjectSpace {
     if (HeaderByte.NEEDS_UNLOGGED_BIT) newValue |= HeaderByte.UNLOGGED_BIT;
     VM.objectModel.writeAvailableByte(object, newValue);
     Address cell = VM.objectModel.objectStartRef(object);
-    treadmill.addToTreadmill(Treadmill.midPayloadToNode(cell), alloc);
+    Address node = Treadmill.midPayloadToNode(cell);
+    getTreadmill(node).addToTreadmill(node, alloc);
   }
 
   /**
@@ -284,14 +354,25 @@ public final class LargeObjectSpace extends BaseLargeObjectSpace {
   }
 
   /**
-   * This is the treadmill used by the large object space.
+   * @param node A treadmill node
+   * @return The treadmill holding the node, chosen by its superpage
+   */
+  @Inline
+  private Treadmill getTreadmill(Address node) {
+    Word page = node.toWord().rshl(LOG_BYTES_IN_PAGE);
+    return treadmills[page.xor(page.rshl(LOG_TREADMILLS)).toInt() & (TREADMILLS - 1)];
+  }
+
+  /**
+   * These are the treadmills used by the large object space.
    *
    * Note that it depends on the specific local in use whether this
    * is being used.
    *
+   * @param index The index of the treadmill, less than {@link #TREADMILLS}
    * @return The treadmill associated with this large object space.
    */
-  public Treadmill getTreadmill() {
-    return this.treadmill;
+  public Treadmill getTreadmill(int index) {
+    return treadmills[index];
   }
 }
@@ -36,8 +36,13 @@ import org.vmmagic.unboxed.ObjectReference;
  *<p>
  * Each collector thread maintains a private list of the pages that it compacts.
  * If it runs out of work during the calculateForwardingPointers pass, it requests
- * a new region from the global MarkCompactSpace.  Regions compacted by a collector
- * remain local to the collector.
+ * a new region from the global MarkCompactSpace.  Objects only slide towards the
+ * start of the list of the collector that claimed them, so each collector's list
+ * is compacted independently, in parallel with the others.<p>
+ *
+ * Regions compacted by a collector remain local to the collector until the next
+ * collection, when they are returned to the global list so that the regions are
+ * shared out afresh between all the collector threads taking part.
  *
  * @see MarkCompactSpace
  * @see MarkCompactLocal
@@ -422,6 +427,18 @@ public final class MarkCompactCollector {
 
   /* ***************************************************************************************** */
 
+  /**
+   * Prepare for a collection: return the regions compacted by this collector
+   * in the previous collection to the global list, so that the forwarding
+   * and compaction work is balanced between all the collector threads.
+   */
+  public void prepare() {
+    if (!regions.isZero()) {
+      space.append(regions);
+      regions = Address.zero();
+    }
+  }
+
   /**
    * Perform a linear scan through the objects allocated by this bump pointer,
    * calculating where each live object will be post collection.<p>
@@ -50,6 +50,9 @@ import org.vmmagic.pragma.*;
   /** The list of occupied regions */
   private Address regionList = Address.zero();
 
+  /** The last region in {@link #regionList} */
+  private Address regionListTail = Address.zero();
+
   // TODO - maintain a separate list of partially allocated regions
   // for threads to allocate into immediately after a collection.
 
@@ -327,6 +330,7 @@ import org.vmmagic.pragma.*;
     }
     Address result = regionList;
     regionList = BumpPointer.getNextRegion(regionList);
+    if (regionList.isZero()) regionListTail = Address.zero();
     BumpPointer.clearNextRegion(result);
     lock.release();
     return result;
@@ -337,6 +341,11 @@ import org.vmmagic.pragma.*;
    * @param region the region to append
    */
   public void append(Address region) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!region.isZero());
+    Address last = region;
+    while (!BumpPointer.getNextRegion(last).isZero()) {
+      last = BumpPointer.getNextRegion(last);
+    }
     lock.acquire();
     if (MarkCompactCollector.VERBOSE) {
       Log.write("Appending region ", region);
@@ -345,8 +354,9 @@ import org.vmmagic.pragma.*;
     if (regionList.isZero()) {
       regionList = region;
     } else {
-      appendRegion(regionList,region);
+      BumpPointer.setNextRegion(regionListTail,region);
     }
+    regionListTail = last;
     lock.release();
   }
 
@@ -19,6 +19,7 @@ import org.mmtk.utility.heap.*;
 import org.mmtk.utility.options.Options;
 import org.mmtk.utility.options.MarkSweepMarkBits;
 import org.mmtk.utility.options.EagerCompleteSweep;
+import org.mmtk.utility.options.SweepMode;
 import org.mmtk.utility.HeaderByte;
 
 import org.mmtk.vm.VM;
@@ -60,7 +61,7 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
   private static final byte MARK_COUNT_INCREMENT = (byte) (1 << COUNT_BASE);
   private static final byte MARK_COUNT_MASK = (byte) (((1 << MAX_MARKCOUNT_BITS) - 1) << COUNT_BASE);
 
-  private static final boolean EAGER_MARK_CLEAR = HeaderByte.NEEDS_UNLOGGED_BIT;
+  private static final boolean EAGER_MARK_CLEAR = VM.activePlan.constraints().needsLogBitInHeader();
 
   /* header requirements */
   public static final int LOCAL_GC_BITS_REQUIRED = MAX_MARKCOUNT_BITS;
@@ -91,6 +92,7 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
   static {
     Options.markSweepMarkBits = new MarkSweepMarkBits();
     Options.eagerCompleteSweep = new EagerCompleteSweep();
+    Options.sweepMode = new SweepMode();
   }
 
   /**
@@ -208,12 +210,29 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
     inMSCollection = true;
   }
 
+  /**
+   * Sweep this collector's share of the blocks.  When sweeping in
+   * parallel this is called by every collector thread before the space
+   * is released, otherwise it does nothing.
+   */
+  public void sweep() {
+    if (Options.sweepMode.getParallel()) {
+      parallelSweepConsumedBlocks(!EAGER_MARK_CLEAR);
+    }
+  }
+
   /**
    * A new collection increment has completed.  For the mark-sweep
-   * collector this means we can perform the sweep phase.
+   * collector this means we can perform the sweep phase, sweeping
+   * any blocks not already swept in parallel, or deferring the sweep
+   * until the blocks are allocated into.
  */
   public void release() {
-    sweepConsumedBlocks(!EAGER_MARK_CLEAR);
+    if (Options.sweepMode.getLazy()) {
+      deferSweepConsumedBlocks(!EAGER_MARK_CLEAR);
+    } else {
+      sweepConsumedBlocks(!EAGER_MARK_CLEAR);
+    }
     inMSCollection = false;
   }
 
@@ -52,6 +52,8 @@ public abstract class SegregatedFreeListSpace extends Space {
   protected static final int MIN_CELLS = 6;
   protected static final int MAX_CELLS = 99; // (1<<(INUSE_BITS-1))-1;
   protected static final int MAX_CELL_SIZE = 8 << 10;
+  /** The number of blocks a collector claims at a time during a parallel sweep */
+  private static final int SWEEP_BATCH_BLOCKS = 32;
   public static final int MAX_FREELIST_OBJECT_BYTES = MAX_CELL_SIZE;
 
   // live bits etc
@@ -86,6 +88,10 @@ public abstract class SegregatedFreeListSpace extends Space {
   protected final AddressArray consumedBlockHead = AddressArray.create(sizeClassCount());
   protected final AddressArray flushedBlockHead = AddressArray.create(sizeClassCount());
   protected final AddressArray availableBlockHead = AddressArray.create(sizeClassCount());
+  /** Blocks whose sweep has been deferred until they are allocated into */
+  protected final AddressArray unsweptBlockHead = AddressArray.create(sizeClassCount());
+  /** Should deferred sweeps clear block mark bits? */
+  private boolean unsweptClearMarks;
 
   private final int[] cellSize = new int[sizeClassCount()];
   private final byte[] blockSizeClass = new byte[sizeClassCount()];
@@ -197,6 +203,27 @@ public abstract class SegregatedFreeListSpace extends Space {
       BlockAllocator.setNext(block, consumedBlockHead.get(sizeClass));
       consumedBlockHead.set(sizeClass, block);
     }
+    while (!(block = unsweptBlockHead.get(sizeClass)).isZero()) {
+      unsweptBlockHead.set(sizeClass, BlockAllocator.getNext(block));
+      lock.release();
+
+      /* Sweep the block, freeing it if it is dead */
+      Extent blockSize = Extent.fromIntSignExtend(BlockAllocator.blockSize(blockSizeClass[sizeClass]));
+      if (!sweepBlock(block, sizeClass, blockSize, Address.zero(), unsweptClearMarks).isZero()) {
+        Address cell = advanceToBlock(block, sizeClass);
+        if (!cell.isZero()) {
+          freeList.set(sizeClass, cell);
+          return block;
+        }
+
+        /* Block was full */
+        lock.acquire();
+        BlockAllocator.setNext(block, consumedBlockHead.get(sizeClass));
+        consumedBlockHead.set(sizeClass, block);
+      } else {
+        lock.acquire();
+      }
+    }
     lock.release();
     return expandSizeClass(sizeClass, freeList);
   }
@@ -500,7 +527,7 @@ public abstract class SegregatedFreeListSpace extends Space {
   protected final void sweepConsumedBlocks(boolean clearMarks) {
     for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
       Extent blockSize = Extent.fromIntSignExtend(BlockAllocator.blockSize(blockSizeClass[sizeClass]));
-      Address availableHead = Address.zero();
+      Address availableHead = availableBlockHead.get(sizeClass);
       /* Flushed blocks */
       Address block = flushedBlockHead.get(sizeClass);
       flushedBlockHead.set(sizeClass, Address.zero());
@@ -522,6 +549,103 @@ public abstract class SegregatedFreeListSpace extends Space {
     }
   }
 
+  /**
+   * Sweep a share of the blocks for free objects.  This is designed to be
+   * called in parallel by all the collector threads, each of which claims
+   * batches of blocks to sweep until none remain.  Blocks that are still
+   * live are made available in a single step for each size class.
+   *
+   * @param clearMarks should we clear block mark bits as we process.
+   */
+  protected final void parallelSweepConsumedBlocks(boolean clearMarks) {
+    for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
+      Extent blockSize = Extent.fromIntSignExtend(BlockAllocator.blockSize(blockSizeClass[sizeClass]));
+      Address availableHead = Address.zero();
+      Address availableTail = Address.zero();
+      Address block;
+      while (!(block = getSweepBatch(sizeClass)).isZero()) {
+        while (!block.isZero()) {
+          Address next = BlockAllocator.getNext(block);
+          availableHead = sweepBlock(block, sizeClass, blockSize, availableHead, clearMarks);
+          if (availableTail.isZero()) availableTail = availableHead;
+          block = next;
+        }
+      }
+      if (!availableHead.isZero()) {
+        lock.acquire();
+        BlockAllocator.setNext(availableTail, availableBlockHead.get(sizeClass));
+        availableBlockHead.set(sizeClass, availableHead);
+        lock.release();
+      }
+    }
+  }
+
+  /**
+   * Claim a batch of blocks for a parallel sweep.
+   *
+   * @param sizeClass The size class of the blocks to sweep.
+   * @return The first of a list of up to {@link #SWEEP_BATCH_BLOCKS} blocks,
+   * or zero if no blocks remain to be swept.
+   */
+  private Address getSweepBatch(int sizeClass) {
+    lock.acquire();
+    AddressArray list = flushedBlockHead;
+    Address batch = list.get(sizeClass);
+    if (batch.isZero()) {
+      list = consumedBlockHead;
+      batch = list.get(sizeClass);
+    }
+    if (!batch.isZero()) {
+      Address last = batch;
+      for (int i = 1; i < SWEEP_BATCH_BLOCKS && !BlockAllocator.getNext(last).isZero(); i++) {
+        last = BlockAllocator.getNext(last);
+      }
+      list.set(sizeClass, BlockAllocator.getNext(last));
+      BlockAllocator.setNext(last, Address.zero());
+    }
+    lock.release();
+    return batch;
+  }
+
+  /**
+   * Defer the sweep of all blocks until they are next allocated into.  The
+   * blocks become unswept, and are swept one at a time by
+   * {@link #getAllocationBlock(int, AddressArray)}, freeing dead blocks.
+   * Blocks that remain unswept at the start of the next collection are
+   * swept by that collection.  Only the blocks flushed at the start of
+   * the collection are walked here, not the consumed blocks.
+   *
+   * @param clearMarks should we clear block mark bits as we sweep.
+   */
+  protected final void deferSweepConsumedBlocks(boolean clearMarks) {
+    unsweptClearMarks = clearMarks;
+    for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(unsweptBlockHead.get(sizeClass).isZero());
+      unsweptBlockHead.set(sizeClass, appendList(flushedBlockHead.get(sizeClass), consumedBlockHead.get(sizeClass)));
+      flushedBlockHead.set(sizeClass, Address.zero());
+      consumedBlockHead.set(sizeClass, Address.zero());
+    }
+  }
+
+  /**
+   * Append one list of blocks to another.
+   *
+   * @param head The first block of the list to append to, walked to its end
+   * @param tail The first block of the list to append
+   * @return The first block of the combined list
+   */
+  private static Address appendList(Address head, Address tail) {
+    if (head.isZero()) return tail;
+    if (!tail.isZero()) {
+      Address last = head;
+      while (!BlockAllocator.getNext(last).isZero()) {
+        last = BlockAllocator.getNext(last);
+      }
+      BlockAllocator.setNext(last, tail);
+    }
+    return head;
+  }
+
   /**
    * Sweeps a block, freeing it and adding to the list given by availableHead
    * if it contains no free objects.
@@ -553,8 +677,17 @@ public abstract class SegregatedFreeListSpace extends Space {
    */
   protected final void consumeBlocks() {
     for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
+      /* Blocks whose sweep was deferred are swept first */
+      Extent blockSize = Extent.fromIntSignExtend(BlockAllocator.blockSize(blockSizeClass[sizeClass]));
+      Address block = unsweptBlockHead.get(sizeClass);
+      unsweptBlockHead.set(sizeClass, Address.zero());
+      while (!block.isZero()) {
+        Address next = BlockAllocator.getNext(block);
+        availableBlockHead.set(sizeClass, sweepBlock(block, sizeClass, blockSize, availableBlockHead.get(sizeClass), unsweptClearMarks));
+        block = next;
+      }
       while (!availableBlockHead.get(sizeClass).isZero()) {
-        Address block = availableBlockHead.get(sizeClass);
+        block = availableBlockHead.get(sizeClass);
         availableBlockHead.set(sizeClass, BlockAllocator.getNext(block));
         advanceToBlock(block, sizeClass);
         BlockAllocator.setNext(block, consumedBlockHead.get(sizeClass));
@@ -568,8 +701,9 @@ public abstract class SegregatedFreeListSpace extends Space {
    */
   protected final void flushAvailableBlocks() {
     for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
-      flushedBlockHead.set(sizeClass, availableBlockHead.get(sizeClass));
+      flushedBlockHead.set(sizeClass, appendList(availableBlockHead.get(sizeClass), unsweptBlockHead.get(sizeClass)));
       availableBlockHead.set(sizeClass, Address.zero());
+      unsweptBlockHead.set(sizeClass, Address.zero());
     }
   }
 
@@ -196,13 +196,22 @@ public class Block  {
     return rtn;
   }
 
-  static void resetLineMarksAndDefragStateTable(short threshold, Address markStateBase, Address defragStateBase,
+  static int resetLineMarksAndDefragStateTable(short threshold, int budget, Address markStateBase, Address defragStateBase,
       Address lineMarkBase, int block) {
     Offset csOffset = Offset.fromIntZeroExtend(block << LOG_BYTES_IN_BLOCK_DEFRAG_STATE_ENTRY);
     short state = defragStateBase.loadShort(csOffset);
     short defragState = BLOCK_IS_NOT_DEFRAG_SOURCE;
-    if (state >= threshold) defragState = BLOCK_IS_DEFRAG_SOURCE;
+    if (state >= threshold) {
+      /* charge the block's live lines against the evacuation budget */
+      short lines = markStateBase.loadShort(Offset.fromIntZeroExtend(block << LOG_BYTES_IN_BLOCK_STATE_ENTRY));
+      if (lines > MAX_BLOCK_MARK_STATE) lines = LINES_IN_BLOCK;
+      if (lines <= budget) {
+        defragState = BLOCK_IS_DEFRAG_SOURCE;
+        if (budget != Integer.MAX_VALUE) budget -= lines;
+      }
+    }
     defragStateBase.store(defragState, csOffset);
+    return budget;
   }
 
   private static final short UNALLOCATED_BLOCK_STATE = 0;
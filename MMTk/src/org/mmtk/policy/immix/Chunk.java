@@ -128,14 +128,15 @@ public class Chunk {
     return (rtn < 0) ? -rtn : rtn;
   }
 
-  static void resetLineMarksAndDefragStateTable(Address chunk, short threshold) {
+  static int resetLineMarksAndDefragStateTable(Address chunk, short threshold, int budget) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isAligned(chunk));
     Address markStateBase = Block.getBlockMarkStateAddress(chunk);
     Address defragStateBase = Block.getDefragStateAddress(chunk);
     Address lineMarkBase = Line.getChunkMarkTable(chunk);
     for (int b = FIRST_USABLE_BLOCK_INDEX; b < BLOCKS_IN_CHUNK; b++) {
-      Block.resetLineMarksAndDefragStateTable(threshold, markStateBase, defragStateBase, lineMarkBase, b);
+      budget = Block.resetLineMarksAndDefragStateTable(threshold, budget, markStateBase, defragStateBase, lineMarkBase, b);
     }
+    return budget;
   }
 
   static Address getFirstUsableBlock(Address chunk) {
@@ -88,9 +88,10 @@ public final class CollectorLocal {
   private void resetLineMarksAndDefragStateTable(int ordinal, final short threshold) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(immixSpace.inImmixDefragCollection());
     int stride = VM.activePlan.collector().parallelWorkerCount();
+    int budget = defrag.getCollectorLineBudget(stride);
     Address chunk = chunkMap.firstChunk(ordinal, stride);
     while (!chunk.isZero()) {
-      Chunk.resetLineMarksAndDefragStateTable(chunk, threshold);
+      budget = Chunk.resetLineMarksAndDefragStateTable(chunk, threshold, budget);
       chunk = chunkMap.nextChunk(chunk, ordinal, stride);
     }
   }
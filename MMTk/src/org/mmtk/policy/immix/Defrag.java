@@ -25,6 +25,7 @@ import org.mmtk.utility.options.DefragHeadroomFraction;
 import org.mmtk.utility.options.DefragLineReuseRatio;
 import org.mmtk.utility.options.DefragSimpleSpillThreshold;
 import org.mmtk.utility.options.DefragStress;
+import org.mmtk.utility.options.DefragTimeCap;
 import org.mmtk.utility.options.Options;
 import org.mmtk.utility.statistics.EventCounter;
 import org.mmtk.utility.statistics.SizeCounter;
@@ -40,6 +41,11 @@ public class Defrag {
   private boolean defragSpaceExhausted = true;
   private int[][] spillMarkHistograms;
   private final int[] spillAvailHistogram = new int[SPILL_HISTOGRAM_BUCKETS];
+
+  /* incremental defragmentation (see DefragTimeCap) */
+  private int defragLineBudget = Integer.MAX_VALUE;
+  private long collectionStart;
+  private long nanosPerLine = 0;
   public static SizeCounter defragCleanBytesUsed = new SizeCounter("cleanUsed");
 
   /* verbose stats (used only on stats runs since they induce overhead when gathered) */
@@ -61,6 +67,7 @@ public class Defrag {
     Options.defragFreeHeadroomFraction = new DefragFreeHeadroomFraction();
     Options.defragSimpleSpillThreshold = new DefragSimpleSpillThreshold();
     Options.defragStress = new DefragStress();
+    Options.defragTimeCap = new DefragTimeCap();
     defragReusableMarkStateThreshold = (short) (Options.defragLineReuseRatio.getValue() * MAX_BLOCK_MARK_STATE);
   }
 
@@ -84,7 +91,16 @@ public class Defrag {
     return inDefragCollection;
   }
 
+  /**
+   * @return whether this defragmentation is bounded by the time cap,
+   * evacuating only some of the candidate blocks
+   */
+  boolean inIncrementalDefrag() {
+    return inDefragCollection && defragLineBudget != Integer.MAX_VALUE;
+  }
+
   void prepare(ChunkList chunkMap, ImmixSpace space) {
+    collectionStart = VM.statistics.nanoTime();
     availableCleanPagesForDefrag = VM.activePlan.global().getTotalPages() - VM.activePlan.global().getPagesReserved() + getDefragHeadroomPages();
     if (availableCleanPagesForDefrag < 0) availableCleanPagesForDefrag = 0;
     defragSpaceExhausted = false;
@@ -108,7 +124,10 @@ public class Defrag {
     availableCleanPagesForDefrag += VM.activePlan.global().getCollectionReserve();
   }
 
-  void globalRelease() {
+  void globalRelease(boolean majorGC) {
+    if (majorGC && Options.defragTimeCap.getMicroseconds() > 0)
+      sampleCollectionCost();
+
     if (inDefragCollection && Options.verbose.getValue() > 2) {
       Log.write("(Defrag summary: cu: ");
       defragCleanBytesUsed.printCurrentVolume();
@@ -122,9 +141,37 @@ public class Defrag {
     }
 
     inDefragCollection = false;
+    defragLineBudget = Integer.MAX_VALUE;
     debugCollectionTypeDetermined = false;
   }
 
+  /**
+   * Estimate the cost of evacuating a line from the cost per live line of
+   * the full heap collection that has just completed.  The estimate is
+   * conservative, since it charges the whole collection to the lines that
+   * were marked or copied.  Called after the sweep, when the spill mark
+   * histograms hold the marked lines of this collection.
+   */
+  private void sampleCollectionCost() {
+    long elapsed = VM.statistics.nanoTime() - collectionStart;
+    long lines = inDefragCollection ? debugBytesDefraged >>> LOG_BYTES_IN_LINE : 0;
+    for (int c = 0; c < spillMarkHistograms.length; c++)
+      for (int i = 0; i < SPILL_HISTOGRAM_BUCKETS; i++)
+        lines += spillMarkHistograms[c][i];
+    if (lines == 0 || elapsed <= 0) return;
+    long sample = elapsed / lines + 1;
+    nanosPerLine = nanosPerLine == 0 ? sample : (nanosPerLine + sample) >> 1;
+  }
+
+  /**
+   * @param collectors The number of collectors resetting the defrag state in parallel
+   * @return The number of live lines each collector may select for evacuation
+   */
+  int getCollectorLineBudget(int collectors) {
+    if (defragLineBudget == Integer.MAX_VALUE) return Integer.MAX_VALUE;
+    return (defragLineBudget + collectors - 1) / collectors;
+  }
+
   int getDefragHeadroomPages() {
     if (Options.defragHeadroom.getPages() > 0) {
       return Options.defragHeadroom.getPages();
@@ -138,6 +185,13 @@ public class Defrag {
     inDefragCollection =  (collectionAttempt > 1) ||
         emergencyCollection ||
         collectWholeHeap && (Options.defragStress.getValue() || (userTriggered && Options.fullHeapSystemGC.getValue()));
+    defragLineBudget = Integer.MAX_VALUE;
+    if (!inDefragCollection && collectWholeHeap && Options.defragTimeCap.getMicroseconds() > 0 && nanosPerLine > 0) {
+      /* incremental: evacuate only as many live lines as fit within the time cap */
+      long budget = (Options.defragTimeCap.getMicroseconds() * 1000L) / nanosPerLine;
+      defragLineBudget = budget < 1 ? 1 : (budget > Integer.MAX_VALUE - 1 ? Integer.MAX_VALUE - 1 : (int) budget);
+      inDefragCollection = true;
+    }
     if (inDefragCollection) {
       debugBytesDefraged = 0;
     }
@@ -169,9 +223,10 @@ public class Defrag {
       Log.write("cl: ", cleanLines);
       Log.write(" al: ", availableLines);
       Log.write(" lm: ", limit);
+      if (defragLineBudget != Integer.MAX_VALUE) Log.write(" bg: ", defragLineBudget);
     }
     int collectors = VM.activePlan.collectorCount();
-    for (short index = MAX_CONSV_SPILL_COUNT; index >= TMP_MIN_SPILL_THRESHOLD && limit > requiredLines; index--) {
+    for (short index = MAX_CONSV_SPILL_COUNT; index >= TMP_MIN_SPILL_THRESHOLD && limit > requiredLines && defragLineBudget > requiredLines; index--) {
       threshold = index;
       int thisBucketMark = 0;
       int thisBucketAvail = 0;
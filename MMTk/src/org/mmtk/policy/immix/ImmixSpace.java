@@ -67,6 +67,7 @@ public final class ImmixSpace extends Space {
           byte lineMarkState = RESET_LINE_MARK_STATE;
   private byte lineUnavailState = RESET_LINE_MARK_STATE;
   private boolean inCollection;
+  private boolean isAllocAsMarked = false;
   private int linesConsumed = 0;
 
   private final Lock mutatorLock = VM.newLock(getName() + "mutator");
@@ -148,17 +149,17 @@ public final class ImmixSpace extends Space {
   /**
    * A new collection increment has completed.  Release global resources.
    * @param majorGC whether the collection was a full heap collection
-   * @return whether defragmentation occurred
+   * @return whether a defragmentation of all candidate blocks occurred
    */
   public boolean release(boolean majorGC) {
-    boolean didDefrag = defrag.inDefrag();
+    boolean didDefrag = defrag.inDefrag() && !defrag.inIncrementalDefrag();
     if (majorGC) {
       if (lineMarkState == MAX_LINE_MARK_STATE)
         lineMarkState = RESET_LINE_MARK_STATE;
      lineUnavailState = lineMarkState;
     }
     chunkMap.reset();
-    defrag.globalRelease();
+    defrag.globalRelease(majorGC);
     inCollection = false;
 
     /* set up reusable space */
@@ -379,9 +380,15 @@ public final class ImmixSpace extends Space {
   */
   @Inline
   public void postAlloc(ObjectReference object, int bytes) {
-    if (bytes > BYTES_IN_LINE)
-      ObjectHeader.markAsStraddling(object);
-    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(ObjectHeader.isNewObject(object));
+    if (isAllocAsMarked && inCollection) {
+      /* allocated during a concurrent trace: mark the object and its lines live */
+      ObjectHeader.writeMarkState(object, markState, bytes > BYTES_IN_LINE);
+      markLines(object);
+    } else {
+      if (bytes > BYTES_IN_LINE)
+        ObjectHeader.markAsStraddling(object);
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(ObjectHeader.isNewObject(object));
+    }
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!ForwardingWord.isForwardedOrBeingForwarded(object));
   }
 
@@ -768,6 +775,15 @@ public final class ImmixSpace extends Space {
   }
 
 
+  /**
+   * Objects allocated while this space is being collected are marked
+   * live, along with the lines they occupy, so that a concurrent trace
+   * need not visit them and the sweep will not reclaim them.
+   */
+  public void makeAllocAsMarked() {
+    isAllocAsMarked = true;
+  }
+
   /****************************************************************************
    *
    * Locks
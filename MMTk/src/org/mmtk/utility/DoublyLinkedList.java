@@ -159,6 +159,21 @@ import org.vmmagic.unboxed.*;
     return first;
   }
 
+  /**
+   * Remove every node from the list at once.  The nodes remain linked
+   * to each other, and may be walked with {@link #getNext(Address)}.
+   *
+   * @return The first of the removed nodes, or zero if the list was empty
+   */
+  @Inline
+  public Address detach() {
+    if (lock != null) lock.acquire();
+    Address first = head;
+    head = Address.zero();
+    if (lock != null) lock.release();
+    return first;
+  }
+
   @Inline
   public boolean isEmpty() {
     return head.isZero();
@@ -29,7 +29,7 @@ import org.vmmagic.unboxed.ObjectReference;
 public class HeaderByte {
   private static final int TOTAL_BITS = 8;
 
-  public static final boolean NEEDS_UNLOGGED_BIT = VM.activePlan.constraints().needsLogBitInHeader();
+  public static final boolean NEEDS_UNLOGGED_BIT = VM.activePlan.constraints().needsUnloggedBit();
   private static final int UNLOGGED_BIT_NUMBER = TOTAL_BITS - (NEEDS_UNLOGGED_BIT ? 1 : 0);
   public static final byte UNLOGGED_BIT = (byte) (1 << UNLOGGED_BIT_NUMBER);
   public static final int USED_GLOBAL_BITS = TOTAL_BITS - UNLOGGED_BIT_NUMBER;
@@ -99,6 +99,37 @@ public final class Treadmill {
     return fromSpace.pop();
   }
 
+  /**
+   * Removes every node from the nursery list at once.
+   *
+   * @return the first of the removed nodes, which remain linked and may
+   *  be walked with {@link #getNext(Address)}
+   */
+  @Inline
+  public Address detachNursery() {
+    return collectNursery.detach();
+  }
+
+  /**
+   * Removes every node from the mature list at once.
+   *
+   * @return the first of the removed nodes, which remain linked and may
+   *  be walked with {@link #getNext(Address)}
+   */
+  @Inline
+  public Address detachFromSpace() {
+    return fromSpace.detach();
+  }
+
+  /**
+   * @param node a node detached from this treadmill
+   * @return the node following {@code node} in its list, or zero
+   */
+  @Inline
+  public Address getNext(Address node) {
+    return fromSpace.getNext(node);
+  }
+
   /**
    * Copies a node (during gc tracing).
    *
@@ -78,8 +78,23 @@ import org.vmmagic.unboxed.*;
    */
   @Inline
   protected final boolean checkDequeue(int arity) {
+    return checkDequeue(arity, true);
+  }
+
+  /**
+   * Check whether there are values in the buffer for a pending dequeue,
+   * optionally without waiting for other consumers of the shared queue.
+   *
+   * @param arity The arity of the values stored in this queue: the
+   * buffer must contain enough space for this many words.
+   * @param wait Whether to wait on the shared queue when it has no
+   * buffers available
+   * @return whether there are values available for a dequeue
+   */
+  @Inline
+  protected final boolean checkDequeue(int arity, boolean wait) {
     if (bufferOffset(head).isZero()) {
-      return dequeueUnderflow(arity);
+      return dequeueUnderflow(arity, wait);
     } else {
       if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(bufferOffset(head).sGE(Word.fromIntZeroExtend(arity).lsh(LOG_BYTES_IN_ADDRESS).toOffset()));
       return true;
@@ -111,6 +126,19 @@ import org.vmmagic.unboxed.*;
    * @return True if the consumer has eaten all the entries
    */
   protected final boolean headStarved(int arity) {
+    return headStarved(arity, true);
+  }
+
+  /**
+   * The head is empty (or null), and the shared queue has no buffers
+   * available.  If the tail has sufficient entries, consume the tail.
+   * Otherwise, if asked to, wait on the global queue.
+   *
+   * @param arity The arity of this buffer
+   * @param wait Whether to wait on the global queue
+   * @return True if the consumer has eaten all the entries
+   */
+  private boolean headStarved(int arity, boolean wait) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(arity == queue.getArity());
 
     // If the tail has entries...
@@ -121,6 +149,7 @@ import org.vmmagic.unboxed.*;
       // Return that we acquired more entries
       return false;
     }
+    if (!wait) return true;
     // Wait for another entry to materialize...
     head = queue.dequeueAndWait(arity);
     // return true if a) there is a head buffer, and b) it is non-empty
@@ -139,11 +168,12 @@ import org.vmmagic.unboxed.*;
    * if entries cannot be acquired.
    *
    * @param arity The arity of this buffer (used for sanity test only).
+   * @param wait Whether to wait on the shared queue if it has no buffers
    * @return True if there the head buffer has been successfully
    * replenished.
    */
   @NoInline
-  private boolean dequeueUnderflow(int arity) {
+  private boolean dequeueUnderflow(int arity, boolean wait) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(arity == queue.getArity());
     do {
       if (head.NE(Deque.HEAD_INITIAL_VALUE))
@@ -152,7 +182,7 @@ import org.vmmagic.unboxed.*;
     } while (head.NE(Deque.HEAD_INITIAL_VALUE) && bufferOffset(head).isZero());
 
     if (head.EQ(Deque.HEAD_INITIAL_VALUE))
-      return !headStarved(arity);
+      return !headStarved(arity, wait);
 
     return true;
   }
@@ -105,6 +105,17 @@ public abstract class ObjectReferenceBuffer extends TransitiveClosure {
     return values.pop();
   }
 
+  /**
+   * Retrieves an object without waiting for other consumers of the
+   * shared queue.
+   *
+   * @return The object retrieved, or {@code null} if the queue is empty.
+   */
+  @Inline
+  public final ObjectReference popNonBlocking() {
+    return values.popNonBlocking();
+  }
+
   @Inline
   public final boolean isEmpty() {
     return values.isEmpty();
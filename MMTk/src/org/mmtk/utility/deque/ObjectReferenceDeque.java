@@ -96,6 +96,22 @@ import org.vmmagic.pragma.*;
     }
   }
 
+  /**
+   * Pop an object from the object queue without waiting for other
+   * consumers of the shared queue, return zero if the queue is empty.
+   *
+   * @return The next object in the object queue, or zero if no
+   * object is immediately available
+   */
+  @Inline
+  public final ObjectReference popNonBlocking() {
+    if (checkDequeue(1, false)) {
+      return uncheckedDequeue().toObjectReference();
+    } else {
+      return ObjectReference.nullReference();
+    }
+  }
+
   @Inline
   public final boolean isEmpty() {
     return !checkDequeue(1);
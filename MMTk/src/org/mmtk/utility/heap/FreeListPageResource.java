@@ -13,6 +13,7 @@
 package org.mmtk.utility.heap;
 
 import static org.mmtk.utility.heap.layout.VMLayoutConstants.*;
+import static org.mmtk.utility.Constants.BYTES_IN_ADDRESS;
 import static org.mmtk.utility.Constants.LOG_BYTES_IN_PAGE;
 
 import org.mmtk.plan.Plan;
@@ -182,6 +183,7 @@ public final class FreeListPageResource extends PageResource {
       space.growSpace(rtn, bytes, newChunk);
       unlock();
       HeapLayout.mmapper.ensureMapped(rtn, requiredPages);
+      placeOnCurrentNode(rtn, bytes);
       if (zeroed)
         VM.memory.zero(zeroNT, rtn, bytes);
       VM.events.tracePageAcquired(space, rtn, requiredPages);
@@ -227,6 +229,45 @@ public final class FreeListPageResource extends PageResource {
     VM.events.tracePageReleased(space, first, pages);
   }
 
+  /**
+   * Release a list of groups of pages, each allocated together, in a
+   * single critical section.  The groups are linked through their first
+   * word, and the list is terminated by zero.
+   *
+   * @param head The first page of the first group of pages in the list
+   */
+  public void releasePageList(Address head) {
+    /* Zero outside the lock, preserving the link in the first word */
+    for (Address first = head; !first.isZero(); first = first.loadAddress()) {
+      if (VM.VERIFY_ASSERTIONS)
+        VM.assertions._assert(Conversions.isPageAligned(first));
+      int pages = freeList.size(Conversions.bytesToPages(first.diff(start)));
+      if (VM.config.ZERO_PAGES_ON_RELEASE)
+        VM.memory.zero(false, first.plus(BYTES_IN_ADDRESS), Conversions.pagesToBytes(pages).minus(BYTES_IN_ADDRESS));
+      VM.events.tracePageReleased(space, first, pages);
+    }
+
+    lock();
+    Address first = head;
+    while (!first.isZero()) {
+      Address next = first.loadAddress();
+      if (VM.config.ZERO_PAGES_ON_RELEASE)
+        first.store(Address.zero());
+      int pageOffset = Conversions.bytesToPages(first.diff(start));
+      int pages = freeList.size(pageOffset);
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(pages <= committed);
+      reserved -= pages;
+      committed -= pages;
+      int freed = freeList.free(pageOffset, true);
+      pagesCurrentlyOnFreeList += pages;
+
+      if (!contiguous) // only discontiguous spaces use chunks
+        releaseFreeChunks(first, freed);
+      first = next;
+    }
+    unlock();
+  }
+
   /**
    * The release of a page may have freed up an entire chunk or
    * set of chunks.  We need to check whether any chunks can be
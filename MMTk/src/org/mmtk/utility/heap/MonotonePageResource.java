@@ -188,6 +188,7 @@ public final class MonotonePageResource extends PageResource {
       space.growSpace(old, bytes, newChunk);
       unlock();
       HeapLayout.mmapper.ensureMapped(old, requiredPages);
+      placeOnCurrentNode(old, bytes);
       if (zeroed) {
         if (!zeroConcurrent) {
           VM.memory.zero(zeroNT, old, bytes);
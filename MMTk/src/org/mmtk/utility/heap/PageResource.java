@@ -13,6 +13,7 @@
 package org.mmtk.utility.heap;
 
 import org.mmtk.policy.Space;
+import org.mmtk.utility.options.NumaAware;
 import org.mmtk.utility.options.ProtectOnRelease;
 import org.mmtk.utility.options.Options;
 
@@ -83,6 +84,7 @@ public abstract class PageResource {
   static {
     classLock = VM.newLock("PageResource");
     Options.protectOnRelease = new ProtectOnRelease();
+    Options.numaAware = new NumaAware();
   }
 
   /**
@@ -310,6 +312,23 @@ public abstract class PageResource {
     classLock.release();
   }
 
+  /**
+   * Place newly acquired pages on the NUMA node of the acquiring thread,
+   * if NUMA placement is enabled.  Must be called before the pages are
+   * first touched, since the kernel otherwise places them on the node of
+   * the first thread to touch them, which (with concurrent zeroing) need
+   * not be the thread that will use them.
+   *
+   * @param start The start of the pages
+   * @param bytes The size of the pages in bytes
+   */
+  @Inline
+  protected final void placeOnCurrentNode(Address start, Extent bytes) {
+    if (Options.numaAware.getValue()) {
+      VM.memory.numaBind(start, bytes, VM.memory.currentNumaNode());
+    }
+  }
+
   /**
    * Acquire the lock.
    */
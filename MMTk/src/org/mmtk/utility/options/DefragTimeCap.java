@@ -0,0 +1,29 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * Bound the evacuation performed by each immix defragmentation to this
+ * time cap, defragmenting incrementally at every full heap collection.
+ * Zero disables incremental defragmentation.
+ */
+public final class DefragTimeCap extends org.vmutil.options.MicrosecondsOption {
+  /**
+   * Create the option.
+   */
+  public DefragTimeCap() {
+    super(Options.set, "Defrag Time Cap",
+          "Defragment incrementally, trying to limit the evacuation at each full heap collection to this time cap",
+          0);
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+import org.vmmagic.pragma.Uninterruptible;
+
+/**
+ * The write barrier used by the generational collectors, in builds that
+ * select it at run time (see
+ * {@link org.mmtk.plan.generational.Gen#SELECT_BARRIER_AT_RUN_TIME}).
+ * The adaptive field barrier can only be selected at build time.
+ */
+@Uninterruptible
+public final class GenBarrier extends org.vmutil.options.EnumOption {
+
+  public final int SLOT = 0;
+  public final int OBJECT = 1;
+  public final int CARD = 2;
+
+  /**
+   * Create the option.
+   */
+  public GenBarrier() {
+    super(Options.set, "Gen Barrier",
+          "Remember old to young pointers by slot, by object, or by card for array elements",
+          new String[] {"slot", "object", "card"},
+          "slot");
+  }
+
+  /**
+   * @return {@code true} if putfield and aastore use the object barrier.
+   */
+  public boolean getObject() {
+    return getValue() == OBJECT;
+  }
+
+  /**
+   * @return {@code true} if array element stores mark cards.
+   */
+  public boolean getCard() {
+    return getValue() == CARD;
+  }
+}
@@ -26,6 +26,7 @@ public final class Options {
   public static CycleMetaDataLimit cycleMetaDataLimit;
   public static CycleTriggerThreshold cycleTriggerThreshold;
   public static DebugAddress debugAddress;
+  public static DecBufferLimit decBufferLimit;
   public static NurseryZeroing nurseryZeroing;
   public static DummyEnum dummyEnum;
   public static DefragHeadroom defragHeadroom;
@@ -35,6 +36,7 @@ public final class Options {
   public static DefragLineReuseRatio defragLineReuseRatio;
   public static DefragSimpleSpillThreshold defragSimpleSpillThreshold;
   public static DefragStress defragStress;
+  public static DefragTimeCap defragTimeCap;
   public static EagerCompleteSweep eagerCompleteSweep;
   public static EagerMmapSpaces eagerMmapSpaces;
   public static FragmentationStats fragmentationStats;
@@ -43,6 +45,7 @@ public final class Options {
   public static GCspyTileSize gcspyTileSize;
   public static GCspyWait gcspyWait;
   public static GCTimeCap gcTimeCap;
+  public static GenBarrier genBarrier;
   public static GenCycleDetection genCycleDetection;
   public static HarnessAll harnessAll;
   public static IgnoreSystemGC ignoreSystemGC;
@@ -51,6 +54,7 @@ public final class Options {
   public static MetaDataLimit metaDataLimit;
   public static NoFinalizer noFinalizer;
   public static NoReferenceTypes noReferenceTypes;
+  public static NumaAware numaAware;
   public static NurserySize nurserySize;
   public static PerfEvents perfEvents;
   public static PretenureThresholdFraction pretenureThresholdFraction;
@@ -58,7 +62,9 @@ public final class Options {
   public static ProtectOnRelease protectOnRelease;
   public static SanityCheck sanityCheck;
   public static StressFactor stressFactor;
+  public static SweepMode sweepMode;
   public static Threads threads;
+  public static TracePrefetchDistance tracePrefetchDistance;
   public static TraceRate traceRate;
   public static UseReturnBarrier useReturnBarrier;
   public static UseShortStackScans useShortStackScans;
@@ -0,0 +1,50 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+import org.vmmagic.pragma.Uninterruptible;
+
+/**
+ * How the blocks of mark sweep spaces are swept after a collection.
+ */
+@Uninterruptible
+public final class SweepMode extends org.vmutil.options.EnumOption {
+
+  public final int SERIAL = 0;
+  public final int PARALLEL = 1;
+  public final int LAZY = 2;
+
+  /**
+   * Create the option.
+   */
+  public SweepMode() {
+    super(Options.set, "Sweep Mode",
+          "Sweep mark sweep blocks serially or in parallel during the collection, or lazily as mutators allocate",
+          new String[] {"serial", "parallel", "lazy"},
+          "serial");
+  }
+
+  /**
+   * @return {@code true} if all collector threads sweep during the collection.
+   */
+  public boolean getParallel() {
+    return getValue() == PARALLEL;
+  }
+
+  /**
+   * @return {@code true} if each block is swept when a mutator first allocates from it.
+   */
+  public boolean getLazy() {
+    return getValue() == LAZY;
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+import org.mmtk.plan.TraceLocal;
+
+/**
+ * Number of gray objects prefetched ahead of the object being scanned
+ * by the trace loop.
+ */
+public final class TracePrefetchDistance extends org.vmutil.options.IntOption {
+  /**
+   * Create the option.
+   */
+  public TracePrefetchDistance() {
+    super(Options.set, "Trace Prefetch Distance",
+          "Number of gray objects to prefetch ahead of scanning when tracing (0 disables prefetching)",
+          TraceLocal.DEFAULT_PREFETCH_DISTANCE);
+  }
+
+  /**
+   * Ensure the value is valid.
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value < 0, "Prefetch distance must not be negative");
+    failIf(this.value > TraceLocal.MAX_PREFETCH_DISTANCE, "Prefetch distance must be at most " +
+        TraceLocal.MAX_PREFETCH_DISTANCE);
+  }
+}
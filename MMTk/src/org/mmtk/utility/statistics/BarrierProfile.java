@@ -0,0 +1,214 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.statistics;
+
+import org.mmtk.utility.Log;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements a write barrier profile, counting barrier
+ * executions and barrier slow path executions for each location (for
+ * example each field, or each array type) that a barrier is invoked on.
+ * Locations are identified by the location metadata the host VM passes
+ * to the barrier, and are described using
+ * {@link org.mmtk.vm.Barriers#writeLocation(Word, int)} when the
+ * profile is printed.<p>
+ *
+ * Locations are hashed into a fixed-size, direct-mapped table.  The
+ * first location to hash to an entry claims it; stores to colliding
+ * locations, and stores with no location metadata, are accumulated in
+ * a single overflow entry.  Counts are updated without synchronization,
+ * so concurrent mutators may occasionally lose updates.
+ */
+@Uninterruptible
+public class BarrierProfile {
+
+  /****************************************************************************
+   *
+   * Constants
+   */
+
+  /**
+   *
+   */
+  private static final int LOG_TABLE_SIZE = 12;
+  private static final int TABLE_SIZE = 1 << LOG_TABLE_SIZE;
+  private static final int TABLE_MASK = TABLE_SIZE - 1;
+  private static final int OVERFLOW = TABLE_SIZE;
+
+  /** The number of locations printed in each report */
+  private static final int REPORT_LENGTH = 20;
+
+  /****************************************************************************
+   *
+   * Instance variables
+   */
+
+  /**
+   *
+   */
+  private final String name;
+  private final int mode;
+
+  private final int[] locations = new int[TABLE_SIZE + 1];
+  private final int[] stores = new int[TABLE_SIZE + 1];
+  private final int[] slowPaths = new int[TABLE_SIZE + 1];
+  private final long[] totalStores = new long[TABLE_SIZE + 1];
+  private final long[] totalSlowPaths = new long[TABLE_SIZE + 1];
+  private final boolean[] reported = new boolean[TABLE_SIZE + 1];
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * Constructor
+   *
+   * @param name The name of this profile
+   * @param mode The mode of the stores profiled (e.g. {@code INSTANCE_FIELD}),
+   * used when describing locations
+   */
+  public BarrierProfile(String name, int mode) {
+    this.name = name;
+    this.mode = mode;
+  }
+
+  /****************************************************************************
+   *
+   * Profiling
+   */
+
+  /**
+   * Record the execution of a barrier.
+   *
+   * @param location The location metadata identifying the location
+   * being written
+   * @param slowPath {@code true} if the barrier took its slow path
+   */
+  @Inline
+  public final void record(int location, boolean slowPath) {
+    int index = indexOf(location);
+    stores[index]++;
+    if (slowPath) slowPaths[index]++;
+  }
+
+  /**
+   * Find (or claim) the table entry for a location
+   *
+   * @param location The location metadata
+   * @return The index of the table entry for this location
+   */
+  @Inline
+  private int indexOf(int location) {
+    int index = location & TABLE_MASK;
+    int current = locations[index];
+    if (current == location && location != 0) return index;
+    if (current == 0 && location != 0) {
+      locations[index] = location;
+      return index;
+    }
+    return OVERFLOW;
+  }
+
+  /**
+   * Fold the counts for the current interval into the totals,
+   * optionally printing a report for the interval first.
+   *
+   * @param print {@code true} if the interval should be reported
+   */
+  public final void endInterval(boolean print) {
+    if (print) print(false);
+    for (int i = 0; i <= TABLE_SIZE; i++) {
+      totalStores[i] += stores[i];
+      totalSlowPaths[i] += slowPaths[i];
+      stores[i] = 0;
+      slowPaths[i] = 0;
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Reporting
+   */
+
+  /**
+   * Print the locations with the most slow path executions, in
+   * decreasing order.
+   *
+   * @param totals {@code true} if the totals (rather than the counts for
+   * the current interval) should be printed
+   */
+  public final void print(boolean totals) {
+    long allStores = 0;
+    long allSlowPaths = 0;
+    for (int i = 0; i <= TABLE_SIZE; i++) {
+      reported[i] = false;
+      allStores += getStores(i, totals);
+      allSlowPaths += getSlowPaths(i, totals);
+    }
+    Log.write("[Barrier profile ");
+    Log.write(name);
+    Log.write(totals ? " (total): " : " (interval): ");
+    Log.write(allSlowPaths);
+    Log.write(" slow / ");
+    Log.write(allStores);
+    Log.writeln(" barriers]");
+    if (allStores == 0) return;
+
+    for (int n = 0; n < REPORT_LENGTH; n++) {
+      int best = -1;
+      for (int i = 0; i <= TABLE_SIZE; i++) {
+        if (reported[i] || getStores(i, totals) == 0) continue;
+        if (best < 0 || getSlowPaths(i, totals) > getSlowPaths(best, totals) ||
+            (getSlowPaths(i, totals) == getSlowPaths(best, totals) && getStores(i, totals) > getStores(best, totals))) {
+          best = i;
+        }
+      }
+      if (best < 0) break;
+      reported[best] = true;
+      Log.write("  ");
+      Log.write(getSlowPaths(best, totals));
+      Log.write(" / ");
+      Log.write(getStores(best, totals));
+      Log.write(" ");
+      if (best == OVERFLOW) {
+        Log.write("<other>");
+      } else {
+        VM.barriers.writeLocation(Word.fromIntZeroExtend(locations[best]), mode);
+      }
+      Log.writeln();
+    }
+  }
+
+  /**
+   * @param index The table entry
+   * @param totals {@code true} for the total, rather than interval, count
+   * @return The number of barrier executions for the entry
+   */
+  private long getStores(int index, boolean totals) {
+    return totals ? totalStores[index] + stores[index] : stores[index];
+  }
+
+  /**
+   * @param index The table entry
+   * @param totals {@code true} for the total, rather than interval, count
+   * @return The number of barrier slow path executions for the entry
+   */
+  private long getSlowPaths(int index, boolean totals) {
+    return totals ? totalSlowPaths[index] + slowPaths[index] : slowPaths[index];
+  }
+}
@@ -432,4 +432,15 @@ public abstract class Barriers {
    * @param value the new value for the element
    */
   public abstract void objectArrayStoreNoGCBarrier(Object [] dst, int index, Object value);
+
+  /**
+   * Write a description of the location identified by the meta-data
+   * passed to a barrier (for example, the name of a field) to the log.
+   * This is used when reporting write barrier profiles.
+   *
+   * @param metaData Opaque, VM-specific, meta-data identifying the location
+   * (the <code>metaDataB</code> argument of the barrier)
+   * @param mode The context in which the write occurred
+   */
+  public abstract void writeLocation(Word metaData, int mode);
 }
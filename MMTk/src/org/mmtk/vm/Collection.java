@@ -75,6 +75,14 @@ import org.vmmagic.pragma.*;
   @Interruptible
   public abstract void spawnCollectorContext(CollectorContext context);
 
+  /**
+   * Bind the calling thread to the processors of a NUMA node.  This is a
+   * hint only, and may do nothing.
+   *
+   * @param node the NUMA node
+   */
+  public abstract void bindToNumaNode(int node);
+
   /**
    * @return The default number of collector threads to use.
    */
@@ -25,10 +25,14 @@ public class Config {
   /** Zero pages on release? */
   public final boolean ZERO_PAGES_ON_RELEASE;
 
+  /** Select the generational write barrier at run time? */
+  public final boolean SELECT_GEN_BARRIER;
+
   Config(BuildTimeConfig config) {
     ACTIVE_PLAN            = config.getPlanName();
     HEADER_MARK_BITS        = config.getBooleanProperty("mmtk.headerMarkBit",true);
     ZERO_PAGES_ON_RELEASE  = config.getBooleanProperty("mmtk.zeroPagesOnRelease",false);
+    SELECT_GEN_BARRIER     = config.getBooleanProperty("mmtk.selectGenBarrier",false);
   }
 
   public void printConfig() {
@@ -37,6 +41,7 @@ public class Config {
     Log.writeln(ACTIVE_PLAN);
     Log.writeln("HEADER_MARK_BITS = ", HEADER_MARK_BITS);
     Log.writeln("ZERO_PAGES_ON_RELEASE = ", ZERO_PAGES_ON_RELEASE);
+    Log.writeln("SELECT_GEN_BARRIER = ", SELECT_GEN_BARRIER);
     Log.writeln("====================================================");
   }
 
@@ -45,6 +50,7 @@ public class Config {
     Xml.configItem("plan",ACTIVE_PLAN);
     Xml.configItem("header-mark-bit",HEADER_MARK_BITS);
     Xml.configItem("zero-pages-on-release",ZERO_PAGES_ON_RELEASE);
+    Xml.configItem("select-gen-barrier",SELECT_GEN_BARRIER);
     Log.writeln("</config>");
   }
 }
@@ -107,6 +107,28 @@ import org.vmmagic.pragma.*;
    */
   public abstract void zero(boolean useNT, Address start, Extent len);
 
+  /**
+   * @return the number of NUMA nodes, or 1 if the host is not NUMA
+   */
+  public abstract int numaNodes();
+
+  /**
+   * @return the NUMA node of the processor on which the calling thread is
+   * running, or 0 if it cannot be determined
+   */
+  public abstract int currentNumaNode();
+
+  /**
+   * Prefers a NUMA node for the physical memory backing a region of
+   * virtual memory, migrating any pages already touched.  This is a hint
+   * only, and may do nothing.
+   *
+   * @param start the address of the start of the region
+   * @param len the length of the region in bytes
+   * @param node the NUMA node to prefer
+   */
+  public abstract void numaBind(Address start, Extent len, int node);
+
   /**
    * Logs the contents of an address and the surrounding memory to the
    * error output.
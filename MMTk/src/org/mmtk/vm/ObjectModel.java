@@ -140,6 +140,15 @@ public abstract class ObjectModel {
    */
   public abstract int getArrayLength(ObjectReference object);
 
+  /**
+   * Prefetch the type information used to scan an object (for example
+   * its type information block).  This may load from the object's
+   * header, so is best used once the header has itself been prefetched.
+   *
+   * @param object address of the object
+   */
+  public abstract void prefetchTypeInformation(ObjectReference object);
+
   /**
    * Attempts to set the bits available for memory manager use in an
    * object.  The attempt will only be successful if the current value
@@ -84,10 +84,10 @@ public class Controller implements Callbacks.ExitMonitor,
   public static ControllerThread controllerThread = null;
 
   /**
-   * Thread that will perform opt-compilations as directed by the controller
-   * (the thread sets this field when it is created.)
+   * Threads that will perform opt-compilations as directed by the controller
+   * (the controller thread sets this field when it creates them.)
    */
-  public static CompilationThread compilationThread = null;
+  public static CompilationThread[] compilationThreads = null;
 
   /**
    * Thread collecting osr request and pass it to controllerThread
@@ -292,7 +292,9 @@ public class Controller implements Callbacks.ExitMonitor,
       Organizer organizer = e.nextElement();
       organizer.stop(threadDeath);
     }
-    compilationThread.stop(threadDeath);
+    for (CompilationThread compilationThread : compilationThreads) {
+      compilationThread.stop(threadDeath);
+    }
     controllerThread.stop(threadDeath);
     RuntimeMeasurements.stop();
     report();
@@ -31,6 +31,7 @@ import org.jikesrvm.adaptive.util.AOSExternalOptions;
 import org.jikesrvm.adaptive.util.AOSGenerator;
 import org.jikesrvm.adaptive.util.AOSLogging;
 import org.jikesrvm.adaptive.util.AOSOptions;
+import org.jikesrvm.compilers.common.RuntimeCompiler;
 import org.jikesrvm.scheduler.SoftLatch;
 import org.jikesrvm.scheduler.SystemThread;
 import org.vmmagic.pragma.NonMoving;
@@ -139,8 +140,8 @@ public final class ControllerThread extends SystemThread {
     // Create the organizerThreads and schedule them
     createOrganizerThreads();
 
-    // Create the compilationThread and schedule it
-    createCompilationThread();
+    // Create the compilationThreads and schedule them
+    createCompilationThreads();
 
     if (Controller.options.sampling()) {
       // Create our set of standard optimization plans.
@@ -221,12 +222,23 @@ public final class ControllerThread extends SystemThread {
   ///////////////////////
 
   /**
-   *  Creates and schedules the compilationThread.
+   *  Creates and schedules the compilationThreads.  They share the
+   *  compilation queue, so the highest priority plan is always the next
+   *  one to be started.
    */
-  private void createCompilationThread() {
-    CompilationThread ct = new CompilationThread();
-    Controller.compilationThread = ct;
-    ct.start();
+  private void createCompilationThreads() {
+    int count = Math.max(1, Controller.options.COMPILATION_THREADS);
+    if (count > 1) {
+      RuntimeCompiler.enableParallelCompilation();
+    }
+    CompilationThread[] threads = new CompilationThread[count];
+    for (int i = 0; i < count; i++) {
+      threads[i] = new CompilationThread(i);
+    }
+    Controller.compilationThreads = threads;
+    for (CompilationThread ct : threads) {
+      ct.start();
+    }
   }
 
   /**
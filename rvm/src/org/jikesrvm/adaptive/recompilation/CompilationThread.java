@@ -24,6 +24,10 @@ import org.vmmagic.pragma.NonMoving;
  *  thread will pick the highest priority compilation plan from the queue
  *  and invoke the OPT compiler to perform the plan.
  *  <p>
+ *  There may be several compilation threads (see the
+ *  COMPILATION_THREADS option), sharing the one queue and compiling in
+ *  parallel.
+ *  <p>
  *  No intelligence is contained in this class.  All policy decisions are
  *  made by the ControllerThread.
  */
@@ -32,9 +36,10 @@ public final class CompilationThread extends SystemThread {
 
   /**
    * constructor
+   * @param ordinal the index of this thread among the compilation threads
    */
-  public CompilationThread() {
-    super("CompilationThread");
+  public CompilationThread(int ordinal) {
+    super("CompilationThread-" + ordinal);
   }
 
   /**
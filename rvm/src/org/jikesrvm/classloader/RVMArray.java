@@ -610,14 +610,13 @@ public final class RVMArray extends RVMType {
         (srcIdx + len) <= src.length &&
         (dstIdx + len) >= 0 &&
         (dstIdx + len) <= dst.length) {
-      if ((src != dst || srcIdx >= (dstIdx + BYTES_IN_ADDRESS)) && BYTE_BULK_COPY_SUPPORTED) {
-        if (NEEDS_BYTE_ASTORE_BARRIER || NEEDS_BYTE_ALOAD_BARRIER) {
-          Offset srcOffset = Offset.fromIntZeroExtend(srcIdx);
-          Offset dstOffset = Offset.fromIntZeroExtend(dstIdx);
-          Barriers.byteBulkCopy(src, srcOffset, dst, dstOffset, len);
-        } else {
-          Memory.arraycopy8Bit(src, srcIdx, dst, dstIdx, len);
-        }
+      if ((NEEDS_BYTE_ASTORE_BARRIER || NEEDS_BYTE_ALOAD_BARRIER) && BYTE_BULK_COPY_SUPPORTED) {
+        // One barrier action for the whole range; the copy may overlap
+        Offset srcOffset = Offset.fromIntZeroExtend(srcIdx);
+        Offset dstOffset = Offset.fromIntZeroExtend(dstIdx);
+        Barriers.byteBulkCopy(src, srcOffset, dst, dstOffset, len);
+      } else if ((src != dst || srcIdx >= (dstIdx + BYTES_IN_ADDRESS)) && BYTE_BULK_COPY_SUPPORTED) {
+        Memory.arraycopy8Bit(src, srcIdx, dst, dstIdx, len);
       } else {
         arraycopyPiecemeal(src, srcIdx, dst, dstIdx, len);
       }
@@ -671,14 +670,13 @@ public final class RVMArray extends RVMType {
         (srcIdx + len) <= src.length &&
         (dstIdx + len) >= 0 &&
         (dstIdx + len) <= dst.length) {
-      if ((src != dst || srcIdx >= (dstIdx + BYTES_IN_ADDRESS / BYTES_IN_BOOLEAN)) && BOOLEAN_BULK_COPY_SUPPORTED) {
-        if (NEEDS_BOOLEAN_ASTORE_BARRIER || NEEDS_BOOLEAN_ALOAD_BARRIER) {
-          Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_BOOLEAN);
-          Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_BOOLEAN);
-          Barriers.booleanBulkCopy(src, srcOffset, dst, dstOffset, len);
-        } else {
-          Memory.arraycopy8Bit(src, srcIdx, dst, dstIdx, len);
-        }
+      if ((NEEDS_BOOLEAN_ASTORE_BARRIER || NEEDS_BOOLEAN_ALOAD_BARRIER) && BOOLEAN_BULK_COPY_SUPPORTED) {
+        // One barrier action for the whole range; the copy may overlap
+        Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_BOOLEAN);
+        Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_BOOLEAN);
+        Barriers.booleanBulkCopy(src, srcOffset, dst, dstOffset, len);
+      } else if ((src != dst || srcIdx >= (dstIdx + BYTES_IN_ADDRESS / BYTES_IN_BOOLEAN)) && BOOLEAN_BULK_COPY_SUPPORTED) {
+        Memory.arraycopy8Bit(src, srcIdx, dst, dstIdx, len);
       } else {
         arraycopyPiecemeal(src, srcIdx, dst, dstIdx, len);
       }
@@ -732,14 +730,13 @@ public final class RVMArray extends RVMType {
         (srcIdx + len) <= src.length &&
         (dstIdx + len) >= 0 &&
         (dstIdx + len) <= dst.length) {
-      if ((src != dst || srcIdx >= (dstIdx + BYTES_IN_ADDRESS / BYTES_IN_SHORT)) && SHORT_BULK_COPY_SUPPORTED) {
-        if (NEEDS_SHORT_ASTORE_BARRIER || NEEDS_SHORT_ALOAD_BARRIER) {
-          Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_SHORT);
-          Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_SHORT);
-          Barriers.shortBulkCopy(src, srcOffset, dst, dstOffset, len << LOG_BYTES_IN_SHORT);
-        } else {
-          Memory.arraycopy16Bit(src, srcIdx, dst, dstIdx, len);
-        }
+      if ((NEEDS_SHORT_ASTORE_BARRIER || NEEDS_SHORT_ALOAD_BARRIER) && SHORT_BULK_COPY_SUPPORTED) {
+        // One barrier action for the whole range; the copy may overlap
+        Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_SHORT);
+        Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_SHORT);
+        Barriers.shortBulkCopy(src, srcOffset, dst, dstOffset, len << LOG_BYTES_IN_SHORT);
+      } else if ((src != dst || srcIdx >= (dstIdx + BYTES_IN_ADDRESS / BYTES_IN_SHORT)) && SHORT_BULK_COPY_SUPPORTED) {
+        Memory.arraycopy16Bit(src, srcIdx, dst, dstIdx, len);
       } else {
         arraycopyPiecemeal(src, srcIdx, dst, dstIdx, len);
       }
@@ -793,14 +790,13 @@ public final class RVMArray extends RVMType {
         (srcIdx + len) <= src.length &&
         (dstIdx + len) >= 0 &&
         (dstIdx + len) <= dst.length) {
-      if ((src != dst || srcIdx >= (dstIdx + BYTES_IN_ADDRESS / BYTES_IN_CHAR)) && CHAR_BULK_COPY_SUPPORTED) {
-        if (NEEDS_CHAR_ASTORE_BARRIER || NEEDS_CHAR_ALOAD_BARRIER) {
-          Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_CHAR);
-          Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_CHAR);
-          Barriers.charBulkCopy(src, srcOffset, dst, dstOffset, len << LOG_BYTES_IN_CHAR);
-        } else {
-          Memory.arraycopy16Bit(src, srcIdx, dst, dstIdx, len);
-        }
+      if ((NEEDS_CHAR_ASTORE_BARRIER || NEEDS_CHAR_ALOAD_BARRIER) && CHAR_BULK_COPY_SUPPORTED) {
+        // One barrier action for the whole range; the copy may overlap
+        Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_CHAR);
+        Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_CHAR);
+        Barriers.charBulkCopy(src, srcOffset, dst, dstOffset, len << LOG_BYTES_IN_CHAR);
+      } else if ((src != dst || srcIdx >= (dstIdx + BYTES_IN_ADDRESS / BYTES_IN_CHAR)) && CHAR_BULK_COPY_SUPPORTED) {
+        Memory.arraycopy16Bit(src, srcIdx, dst, dstIdx, len);
       } else {
         arraycopyPiecemeal(src, srcIdx, dst, dstIdx, len);
       }
@@ -854,14 +850,13 @@ public final class RVMArray extends RVMType {
         (srcIdx + len) <= src.length &&
         (dstIdx + len) >= 0 &&
         (dstIdx + len) <= dst.length) {
-      if ((src != dst || srcIdx >= dstIdx) && INT_BULK_COPY_SUPPORTED) {
-        if (NEEDS_INT_ASTORE_BARRIER || NEEDS_INT_ALOAD_BARRIER) {
-          Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_INT);
-          Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_INT);
-          Barriers.intBulkCopy(src, srcOffset, dst, dstOffset, len << LOG_BYTES_IN_INT);
-        } else {
-          Memory.arraycopy32Bit(src, srcIdx, dst, dstIdx, len);
-        }
+      if ((NEEDS_INT_ASTORE_BARRIER || NEEDS_INT_ALOAD_BARRIER) && INT_BULK_COPY_SUPPORTED) {
+        // One barrier action for the whole range; the copy may overlap
+        Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_INT);
+        Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_INT);
+        Barriers.intBulkCopy(src, srcOffset, dst, dstOffset, len << LOG_BYTES_IN_INT);
+      } else if ((src != dst || srcIdx >= dstIdx) && INT_BULK_COPY_SUPPORTED) {
+        Memory.arraycopy32Bit(src, srcIdx, dst, dstIdx, len);
       } else {
         arraycopyPiecemeal(src, srcIdx, dst, dstIdx, len);
       }
@@ -915,14 +910,13 @@ public final class RVMArray extends RVMType {
         (srcIdx + len) <= src.length &&
         (dstIdx + len) >= 0 &&
         (dstIdx + len) <= dst.length) {
-      if ((src != dst || srcIdx > dstIdx) && FLOAT_BULK_COPY_SUPPORTED) {
-        if (NEEDS_FLOAT_ASTORE_BARRIER || NEEDS_FLOAT_ALOAD_BARRIER) {
-          Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_FLOAT);
-          Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_FLOAT);
-          Barriers.floatBulkCopy(src, srcOffset, dst, dstOffset, len << LOG_BYTES_IN_FLOAT);
-        } else {
-          Memory.arraycopy32Bit(src, srcIdx, dst, dstIdx, len);
-        }
+      if ((NEEDS_FLOAT_ASTORE_BARRIER || NEEDS_FLOAT_ALOAD_BARRIER) && FLOAT_BULK_COPY_SUPPORTED) {
+        // One barrier action for the whole range; the copy may overlap
+        Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_FLOAT);
+        Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_FLOAT);
+        Barriers.floatBulkCopy(src, srcOffset, dst, dstOffset, len << LOG_BYTES_IN_FLOAT);
+      } else if ((src != dst || srcIdx > dstIdx) && FLOAT_BULK_COPY_SUPPORTED) {
+        Memory.arraycopy32Bit(src, srcIdx, dst, dstIdx, len);
       } else {
         arraycopyPiecemeal(src, srcIdx, dst, dstIdx, len);
       }
@@ -976,14 +970,13 @@ public final class RVMArray extends RVMType {
         (srcIdx + len) <= src.length &&
         (dstIdx + len) >= 0 &&
         (dstIdx + len) <= dst.length) {
-      if ((src != dst || srcIdx > dstIdx) && LONG_BULK_COPY_SUPPORTED) {
-        if (NEEDS_LONG_ASTORE_BARRIER || NEEDS_LONG_ALOAD_BARRIER) {
-          Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_LONG);
-          Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_LONG);
-          Barriers.longBulkCopy(src, srcOffset, dst, dstOffset, len << LOG_BYTES_IN_LONG);
-        } else {
-          Memory.arraycopy64Bit(src, srcIdx, dst, dstIdx, len);
-        }
+      if ((NEEDS_LONG_ASTORE_BARRIER || NEEDS_LONG_ALOAD_BARRIER) && LONG_BULK_COPY_SUPPORTED) {
+        // One barrier action for the whole range; the copy may overlap
+        Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_LONG);
+        Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_LONG);
+        Barriers.longBulkCopy(src, srcOffset, dst, dstOffset, len << LOG_BYTES_IN_LONG);
+      } else if ((src != dst || srcIdx > dstIdx) && LONG_BULK_COPY_SUPPORTED) {
+        Memory.arraycopy64Bit(src, srcIdx, dst, dstIdx, len);
       } else {
         arraycopyPiecemeal(src, srcIdx, dst, dstIdx, len);
       }
@@ -1037,14 +1030,13 @@ public final class RVMArray extends RVMType {
         (srcIdx + len) <= src.length &&
         (dstIdx + len) >= 0 &&
         (dstIdx + len) <= dst.length) {
-      if ((src != dst || srcIdx > dstIdx) && DOUBLE_BULK_COPY_SUPPORTED) {
-        if (NEEDS_DOUBLE_ASTORE_BARRIER || NEEDS_DOUBLE_ALOAD_BARRIER) {
-          Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_DOUBLE);
-          Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_DOUBLE);
-          Barriers.doubleBulkCopy(src, srcOffset, dst, dstOffset, len << LOG_BYTES_IN_DOUBLE);
-        } else {
-          Memory.arraycopy64Bit(src, srcIdx, dst, dstIdx, len);
-        }
+      if ((NEEDS_DOUBLE_ASTORE_BARRIER || NEEDS_DOUBLE_ALOAD_BARRIER) && DOUBLE_BULK_COPY_SUPPORTED) {
+        // One barrier action for the whole range; the copy may overlap
+        Offset srcOffset = Offset.fromIntZeroExtend(srcIdx << LOG_BYTES_IN_DOUBLE);
+        Offset dstOffset = Offset.fromIntZeroExtend(dstIdx << LOG_BYTES_IN_DOUBLE);
+        Barriers.doubleBulkCopy(src, srcOffset, dst, dstOffset, len << LOG_BYTES_IN_DOUBLE);
+      } else if ((src != dst || srcIdx > dstIdx) && DOUBLE_BULK_COPY_SUPPORTED) {
+        Memory.arraycopy64Bit(src, srcIdx, dst, dstIdx, len);
       } else {
         arraycopyPiecemeal(src, srcIdx, dst, dstIdx, len);
       }
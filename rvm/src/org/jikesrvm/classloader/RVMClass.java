@@ -204,6 +204,33 @@ public final class RVMClass extends RVMType {
    */
   private Offset thinLockOffset;
 
+  /**
+   * Biased locking: the number of biases on instances of this class
+   * revoked in the current bias epoch.  Updated without synchronization,
+   * since it only guides the biasing policy.
+   */
+  private int biasRevocations;
+
+  /**
+   * Biased locking: the number of biases on instances of this class handed
+   * over to another thread in the current bias epoch.  Updated without
+   * synchronization, since it only guides the biasing policy.
+   */
+  private int biasHandOffs;
+
+  /**
+   * Biased locking: the number of bias epochs of this class.  In an epoch
+   * other than the first, the bias on an unlocked instance is handed over
+   * to the thread that revokes it, rather than removed.
+   */
+  private int biasEpoch;
+
+  /** Biased locking: when did the current bias epoch start? */
+  private long biasEpochStart;
+
+  /** Biased locking: are instances of this class no longer biased? */
+  private boolean biasingDisabled;
+
   /** Reference Count GC: is this type acyclic?  */
   private boolean acyclic;
 
@@ -1904,6 +1931,83 @@ public final class RVMClass extends RVMType {
     thinLockOffset = offset;
   }
 
+  /**
+   * Records the revocation of a bias on an instance of this class.
+   *
+   * @return the number of biases revoked in the current bias epoch
+   */
+  @Uninterruptible
+  public int recordBiasRevocation() {
+    return ++biasRevocations;
+  }
+
+  /**
+   * Records the hand-off of a bias on an instance of this class to
+   * another thread.
+   *
+   * @return the number of biases handed over in the current bias epoch
+   */
+  @Uninterruptible
+  public int recordBiasHandOff() {
+    return ++biasHandOffs;
+  }
+
+  /**
+   * @return the number of biases handed over in the current bias epoch
+   */
+  @Uninterruptible
+  public int getBiasHandOffs() {
+    return biasHandOffs;
+  }
+
+  /**
+   * @return the number of bias epochs of this class
+   */
+  @Uninterruptible
+  public int getBiasEpoch() {
+    return biasEpoch;
+  }
+
+  /**
+   * @return when the current bias epoch started
+   */
+  @Uninterruptible
+  public long getBiasEpochStart() {
+    return biasEpochStart;
+  }
+
+  /**
+   * Starts a new bias epoch, in which the biases on unlocked instances
+   * are handed over to the threads that revoke them.
+   *
+   * @param now the current time, in nanoseconds
+   * @param revocations the number of revocations to carry into the epoch
+   */
+  @Uninterruptible
+  public void startBiasEpoch(long now, int revocations) {
+    biasEpoch++;
+    biasEpochStart = now;
+    biasRevocations = revocations;
+    biasHandOffs = 0;
+  }
+
+  /**
+   * @return whether instances of this class are no longer biased
+   */
+  @Uninterruptible
+  public boolean isBiasingDisabled() {
+    return biasingDisabled;
+  }
+
+  /**
+   * Stops biasing instances of this class towards the threads that lock
+   * them.  Existing biases are revoked as they are contended.
+   */
+  @Uninterruptible
+  public void disableBiasing() {
+    biasingDisabled = true;
+  }
+
   /**
    * @return number of superclasses to Object
    */
@@ -12,15 +12,25 @@
  */
 package org.jikesrvm.compilers.baseline.ia32;
 
+import static org.jikesrvm.compilers.baseline.ia32.BaselineCompilerImpl.NO_SLOT;
+import static org.jikesrvm.compilers.baseline.ia32.BaselineCompilerImpl.ONE_SLOT;
+import static org.jikesrvm.compilers.common.assembler.ia32.AssemblerConstants.BYTE;
+import static org.jikesrvm.compilers.common.assembler.ia32.AssemblerConstants.NE;
 import static org.jikesrvm.ia32.BaselineConstants.S0;
 import static org.jikesrvm.ia32.BaselineConstants.SP;
 import static org.jikesrvm.ia32.BaselineConstants.T0;
+import static org.jikesrvm.ia32.BaselineConstants.T1;
+import static org.jikesrvm.mm.mminterface.Barriers.OBJECT_PUTFIELD_BARRIER_TESTS_UNLOGGED_BIT;
+import static org.jikesrvm.mm.mminterface.Barriers.OBJECT_UNLOGGED_BIT;
 
 import org.jikesrvm.Configuration;
+import org.jikesrvm.VM;
 import org.jikesrvm.classloader.MethodReference;
 import org.jikesrvm.classloader.NormalMethod;
+import org.jikesrvm.compilers.common.assembler.ForwardReference;
 import org.jikesrvm.compilers.common.assembler.ia32.Assembler;
 import org.jikesrvm.ia32.RegisterConstants.GPR;
+import org.jikesrvm.objectmodel.ObjectModel;
 import org.jikesrvm.runtime.Entrypoints;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.unboxed.Offset;
@@ -29,6 +39,9 @@ import org.vmmagic.unboxed.Offset;
  * Class called from baseline compiler to generate architecture specific
  * write barriers for garbage collectors.  For baseline
  * compiled methods, the write barrier calls methods of WriteBarrier.
+ * When the selected plan's reference putfield barrier only acts on
+ * objects whose unlogged bit is set, that test is emitted inline and
+ * the barrier is only called when the bit is set.
  */
 class Barriers {
 
@@ -147,11 +160,25 @@ class Barriers {
    */
   @Inline
   static void compilePutfieldBarrier(Assembler asm, GPR offset, int locationMetadata) {
+    ForwardReference done = null;
+    if (OBJECT_PUTFIELD_BARRIER_TESTS_UNLOGGED_BIT) {
+      ForwardReference slowPath = genUnloggedBitTest(asm);
+      asm.emitPOP_Reg(T1);  // T1 is the value to be stored
+      asm.emitPOP_Reg(S0);  // S0 is the object reference
+      if (VM.BuildFor32Addr) {
+        asm.emitMOV_RegIdx_Reg(S0, offset, BYTE, NO_SLOT, T1); // [S0+offset] <- T1
+      } else {
+        asm.emitMOV_RegIdx_Reg_Quad(S0, offset, BYTE, NO_SLOT, T1); // [S0+offset] <- T1
+      }
+      done = asm.forwardJMP();
+      slowPath.resolve(asm);
+    }
     asm.emitPUSH_Reg(offset);
     asm.emitPUSH_Imm(locationMetadata);
     BaselineCompilerImpl.genParameterRegisterLoad(asm, 4);
     genNullCheck(asm, T0);
     asm.generateJTOCcall(Entrypoints.objectFieldWriteBarrierMethod.getOffset());
+    if (done != null) done.resolve(asm);
   }
 
   /**
@@ -164,11 +191,43 @@ class Barriers {
    */
   @Inline
   static void compilePutfieldBarrierImm(Assembler asm, Offset fieldOffset, int locationMetadata) {
+    ForwardReference done = null;
+    if (OBJECT_PUTFIELD_BARRIER_TESTS_UNLOGGED_BIT) {
+      ForwardReference slowPath = genUnloggedBitTest(asm);
+      asm.emitPOP_Reg(T0);  // T0 is the value to be stored
+      asm.emitPOP_Reg(S0);  // S0 is the object reference
+      // [S0+fieldOffset] <- T0
+      if (VM.BuildFor32Addr) {
+        asm.emitMOV_RegDisp_Reg(S0, fieldOffset, T0);
+      } else {
+        asm.emitMOV_RegDisp_Reg_Quad(S0, fieldOffset, T0);
+      }
+      done = asm.forwardJMP();
+      slowPath.resolve(asm);
+    }
     asm.emitPUSH_Imm(fieldOffset.toInt());
     asm.emitPUSH_Imm(locationMetadata);
     BaselineCompilerImpl.genParameterRegisterLoad(asm, 4);
     genNullCheck(asm, T0);
     asm.generateJTOCcall(Entrypoints.objectFieldWriteBarrierMethod.getOffset());
+    if (done != null) done.resolve(asm);
+  }
+
+  /**
+   * Generate the inline fast path test of a putfield barrier that only
+   * acts on objects whose unlogged bit is set. On entry the stack holds:
+   * object, value. The stack is unchanged on exit, and the test of the
+   * header byte doubles as the implicit null check of the object.
+   * Scribbles over S0.
+   *
+   * @param asm the assembler to generate the code in
+   * @return a forward reference to be resolved at the start of the
+   * code calling the barrier, taken if the unlogged bit is set
+   */
+  private static ForwardReference genUnloggedBitTest(Assembler asm) {
+    asm.emitMOV_Reg_RegDisp(S0, SP, ONE_SLOT); // S0 is the object reference
+    asm.emitTEST_RegDisp_Imm_Byte(S0, ObjectModel.getAvailableByteOffset(), OBJECT_UNLOGGED_BIT & 0xFF);
+    return asm.forwardJcc(NE);
   }
 
   /**
@@ -96,26 +96,59 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
 
   private static String[] earlyOptArgs = new String[0];
 
+  /**
+   * Guards the compilation statistics above.  Not the class itself, which
+   * serialized opt compilations hold for the whole compile.
+   */
+  private static final Object statsLock = new Object();
+
   /** is the opt compiler usable? This will be the case after booting. */
   protected static boolean compilerEnabled;
 
-  // FIXME Make opt compiler reentrant and update documentation accordingly.
-
   /**
-   * is opt compiler currently in use? This flag is used to detect/avoid
-   * recursive opt compilation (ie when opt compilation causes a method to be
-   * compiled). We also make all public entrypoints static synchronized methods
-   * because the opt compiler is not reentrant. There are two cases here:
-   * <ol>
-   *   <li>recursive opt compilation by the same thread (always bad)
-   *   <li>parallel opt compilation (currently bad because opt compiler
-   *     is not reentrant, future ok)
-   * </ol>
+   * Is the opt compiler currently in use by the current thread? The flag
+   * (held in {@link RVMThread#optCompilationInProgress}) is used to
+   * detect/avoid recursive opt compilation (ie when opt compilation causes
+   * a method to be compiled), which is always bad.<p>
+   *
+   * The public opt compilation entrypoints below are serialized on this
+   * class unless {@link #enableParallelCompilation()} has been called.
+   * Opt compilations by different threads may then proceed in parallel: all
+   * per-compilation state is held in the IR and the compiler phase
+   * instances created for it, and the shared databases updated during
+   * compilation (class loading dependencies, specializations, compiled
+   * methods) are synchronized.
    * <p>
    * NOTE: The associated code can be quite subtle, so please be absolutely sure
    * you know what you're doing before modifying it!!!
+   *
+   * @return whether the current thread is opt compiling
+   */
+  protected static boolean compilationInProgress() {
+    return RVMThread.getCurrentThread().optCompilationInProgress;
+  }
+
+  /**
+   * @param inProgress whether the current thread is starting (true) or
+   * finishing (false) an opt compilation
+   */
+  private static void setCompilationInProgress(boolean inProgress) {
+    RVMThread.getCurrentThread().optCompilationInProgress = inProgress;
+  }
+
+  /**
+   * May opt compilations by different threads proceed in parallel?
+   * Only set when there is more than one compilation thread.
    */
-  protected static boolean compilationInProgress;
+  private static boolean parallelCompilation;
+
+  /**
+   * Stop serializing the opt compilation entrypoints.  Called by the
+   * controller before it starts more than one compilation thread.
+   */
+  public static synchronized void enableParallelCompilation() {
+    parallelCompilation = true;
+  }
 
   // Cache objects needed to cons up compilation plans
   // TODO: cutting link to opt compiler by declaring type as object.
@@ -183,23 +216,24 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
    * @param compTime the compilation time in ms
    */
   private static void recordCompilation(byte compiler, int BCLength, int MCLength, double compTime) {
-
-    totalMethods[compiler]++;
-    totalMCLength[compiler] += MCLength;
-    totalCompTime[compiler] += compTime;
-
-    // Comp rate not useful for JNI compiler because there is no bytecode!
-    if (compiler != JNI_COMPILER) {
-      totalBCLength[compiler] += BCLength;
-      double rate = BCLength / compTime;
-
-      // need to be fully booted before calling log
-      if (VM.fullyBooted) {
-        // we want the geometric mean, but the product of rates is too big
-        //  for doubles, so we use the principle of logs to help us
-        // We compute  e ** ((log a + log b + ... + log n) / n )
-        totalLogOfRates[compiler] += Math.log(rate);
-        totalLogValueMethods[compiler]++;
+    synchronized (statsLock) {
+      totalMethods[compiler]++;
+      totalMCLength[compiler] += MCLength;
+      totalCompTime[compiler] += compTime;
+
+      // Comp rate not useful for JNI compiler because there is no bytecode!
+      if (compiler != JNI_COMPILER) {
+        totalBCLength[compiler] += BCLength;
+        double rate = BCLength / compTime;
+
+        // need to be fully booted before calling log
+        if (VM.fullyBooted) {
+          // we want the geometric mean, but the product of rates is too big
+          //  for doubles, so we use the principle of logs to help us
+          // We compute  e ** ((log a + log b + ... + log n) / n )
+          totalLogOfRates[compiler] += Math.log(rate);
+          totalLogValueMethods[compiler]++;
+        }
       }
     }
   }
@@ -349,7 +383,7 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
    * Attempt to compile the passed method with the Compiler.
    * Don't handle OptimizingCompilerExceptions
    *   (leave it up to caller to decide what to do)<p>
-   * Precondition: compilationInProgress "lock" has been acquired
+   * Precondition: the current thread's compilationInProgress flag has been set
    * @param method the method to compile
    * @param plan the plan to use for compiling the method
    * @return a compiled method
@@ -358,7 +392,7 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
       throws OptimizingCompilerException {
     if (VM.BuildForOptCompiler) {
       if (VM.VerifyAssertions) {
-        VM._assert(compilationInProgress, "Failed to acquire compilationInProgress \"lock\"");
+        VM._assert(compilationInProgress(), "Failed to set compilationInProgress flag");
       }
 
       Callbacks.notifyMethodCompile(method, CompiledMethod.OPT);
@@ -400,13 +434,22 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
    * @return a compiled method (opt when possible, baseline when the opt compiler
    *  busy)
    */
-  public static synchronized CompiledMethod optCompileWithFallBack(NormalMethod method) {
+  public static CompiledMethod optCompileWithFallBack(NormalMethod method) {
+    if (parallelCompilation) {
+      return optCompileWithFallBackImpl(method);
+    }
+    synchronized (RuntimeCompiler.class) {
+      return optCompileWithFallBackImpl(method);
+    }
+  }
+
+  private static CompiledMethod optCompileWithFallBackImpl(NormalMethod method) {
     if (VM.BuildForOptCompiler) {
-      if (compilationInProgress) {
+      if (compilationInProgress()) {
         return fallback(method);
       } else {
         try {
-          compilationInProgress = true;
+          setCompilationInProgress(true);
           CompilationPlan plan =
               new CompilationPlan(method,
                                       (OptimizationPlanElement[]) optimizationPlan,
@@ -414,7 +457,7 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
                                       (OptOptions) options);
           return optCompileWithFallBackInternal(method, plan);
         } finally {
-          compilationInProgress = false;
+          setCompilationInProgress(false);
         }
       }
     } else {
@@ -435,17 +478,27 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
    * @return a compiled method (opt when possible, baseline when the opt compiler
    *  busy)
    */
-  public static synchronized CompiledMethod optCompileWithFallBack(NormalMethod method,
+  public static CompiledMethod optCompileWithFallBack(NormalMethod method,
                                                                       CompilationPlan plan) {
+    if (parallelCompilation) {
+      return optCompileWithFallBackImpl(method, plan);
+    }
+    synchronized (RuntimeCompiler.class) {
+      return optCompileWithFallBackImpl(method, plan);
+    }
+  }
+
+  private static CompiledMethod optCompileWithFallBackImpl(NormalMethod method,
+                                                           CompilationPlan plan) {
     if (VM.BuildForOptCompiler) {
-      if (compilationInProgress) {
+      if (compilationInProgress()) {
         return fallback(method);
       } else {
         try {
-          compilationInProgress = true;
+          setCompilationInProgress(true);
           return optCompileWithFallBackInternal(method, plan);
         } finally {
-          compilationInProgress = false;
+          setCompilationInProgress(false);
         }
       }
     } else {
@@ -493,16 +546,25 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
 
   /* recompile the specialized method with Compiler. */
   public static CompiledMethod recompileWithOptOnStackSpecialization(CompilationPlan plan) {
+    if (parallelCompilation) {
+      return recompileWithOptOnStackSpecializationImpl(plan);
+    }
+    synchronized (RuntimeCompiler.class) {
+      return recompileWithOptOnStackSpecializationImpl(plan);
+    }
+  }
+
+  private static CompiledMethod recompileWithOptOnStackSpecializationImpl(CompilationPlan plan) {
     if (VM.BuildForOptCompiler) {
       if (VM.VerifyAssertions) {
         VM._assert(plan.method.isForOsrSpecialization());
       }
-      if (compilationInProgress) {
+      if (compilationInProgress()) {
         return null;
       }
 
       try {
-        compilationInProgress = true;
+        setCompilationInProgress(true);
 
         // the compiler will check if isForOsrSpecialization of the method
         CompiledMethod cm = optCompile(plan.method, plan);
@@ -529,7 +591,7 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
         }
         return null;
       } finally {
-        compilationInProgress = false;
+        setCompilationInProgress(false);
       }
     } else {
       if (VM.VerifyAssertions) VM._assert(VM.NOT_REACHED);
@@ -549,13 +611,22 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
    *    recompilation failed.
    *
    **/
-  public static synchronized int recompileWithOpt(CompilationPlan plan) {
+  public static int recompileWithOpt(CompilationPlan plan) {
+    if (parallelCompilation) {
+      return recompileWithOptImpl(plan);
+    }
+    synchronized (RuntimeCompiler.class) {
+      return recompileWithOptImpl(plan);
+    }
+  }
+
+  private static int recompileWithOptImpl(CompilationPlan plan) {
     if (VM.BuildForOptCompiler) {
-      if (compilationInProgress) {
+      if (compilationInProgress()) {
         return -1;
       } else {
         try {
-          compilationInProgress = true;
+          setCompilationInProgress(true);
           CompiledMethod cm = optCompile(plan.method, plan);
           try {
             plan.method.replaceCompiledMethod(cm);
@@ -582,7 +653,7 @@ public class RuntimeCompiler implements Callbacks.ExitMonitor {
           }
           return -1;
         } finally {
-          compilationInProgress = false;
+          setCompilationInProgress(false);
         }
       }
     } else {
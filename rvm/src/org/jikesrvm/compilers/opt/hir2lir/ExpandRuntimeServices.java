@@ -40,6 +40,7 @@ import static org.jikesrvm.compilers.opt.ir.Operators.REF_MOVE;
 import static org.jikesrvm.mm.mminterface.Barriers.*;
 
 import java.lang.reflect.Constructor;
+import java.util.HashSet;
 
 import org.jikesrvm.VM;
 import org.jikesrvm.classloader.RVMArray;
@@ -101,6 +102,8 @@ public final class ExpandRuntimeServices extends CompilerPhase {
   private boolean didSomething = false;
   /** Pointer for next instruction during perform() */
   private Instruction next;
+  /** Reference stores that need no write barrier, found during perform() */
+  private HashSet<Instruction> elidedBarriers;
 
 
   /**
@@ -146,6 +149,13 @@ public final class ExpandRuntimeServices extends CompilerPhase {
   public void perform(IR ir) {
     ir.getGc().resync(); // resync generation context -- yuck...
 
+    if (OBJECT_BARRIER_ELISION_SUPPORTED && ir.options.H2L_ELIDE_WRITE_BARRIER) {
+      // must run before allocations and barriers are expanded
+      elidedBarriers = WriteBarrierElision.findElidableStores(ir);
+    } else {
+      elidedBarriers = null;
+    }
+
     for (Instruction inst = ir.firstInstructionInCodeOrder(); inst != null; inst = next) {
       next = inst.nextInstructionInCodeOrder();
       int opcode = inst.getOpcode();
@@ -385,7 +395,7 @@ public final class ExpandRuntimeServices extends CompilerPhase {
         break;
 
         case REF_ASTORE_opcode: {
-          if (NEEDS_OBJECT_ASTORE_BARRIER) {
+          if (NEEDS_OBJECT_ASTORE_BARRIER && !isBarrierElided(inst)) {
             RVMMethod target = Entrypoints.objectArrayWriteBarrierMethod;
             Instruction wb =
                 Call.create3(CALL,
@@ -474,7 +484,7 @@ public final class ExpandRuntimeServices extends CompilerPhase {
             if (!fieldRef.getFieldContentsType().isPrimitiveType()) {
               // reference PUTFIELD
               RVMField field = fieldRef.peekResolvedField();
-              if (field == null || !field.isUntraced()) {
+              if ((field == null || !field.isUntraced()) && !isBarrierElided(inst)) {
                 RVMMethod target = Entrypoints.objectFieldWriteBarrierMethod;
                 Instruction wb =
                     Call.create4(CALL,
@@ -485,9 +495,10 @@ public final class ExpandRuntimeServices extends CompilerPhase {
                                  PutField.getRef(inst).copy(),
                                  PutField.getValue(inst).copy(),
                                  PutField.getOffset(inst).copy(),
-                                 IRTools.IC(fieldRef.getId()));
+                                 IRTools.IC(MemoryManager.fieldWriteBarrierMetadata(fieldRef.getId())));
                 replaceInstructionWithBarrier(inst, wb);
-                if (ir.options.H2L_INLINE_WRITE_BARRIER) {
+                // an unlogged bit barrier inlines to a test and an out-of-line call, so is always inlined
+                if (ir.options.H2L_INLINE_WRITE_BARRIER || OBJECT_PUTFIELD_BARRIER_TESTS_UNLOGGED_BIT) {
                   inline(wb, ir, true);
                 }
               }
@@ -611,6 +622,15 @@ public final class ExpandRuntimeServices extends CompilerPhase {
     ir.getGc().close();
   }
 
+  /**
+   * @param store a reference {@code PUTFIELD} or {@code REF_ASTORE}
+   * @return {@code true} if the store was found to need no write barrier
+   * @see WriteBarrierElision
+   */
+  private boolean isBarrierElided(Instruction store) {
+    return elidedBarriers != null && elidedBarriers.contains(store);
+  }
+
   private void replaceInstructionWithBarrier(Instruction orig, Instruction barrier) {
     barrier.setSourcePosition(RUNTIME_SERVICES_BCI, orig.position());
     orig.replace(barrier);
@@ -0,0 +1,297 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.compilers.opt.hir2lir;
+
+import static org.jikesrvm.compilers.opt.ir.Operators.BOUNDS_CHECK_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.INT_ZERO_CHECK_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.LONG_ZERO_CHECK_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NEWARRAY_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NEW_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.NULL_CHECK_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.PUTFIELD_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_ASTORE_opcode;
+import static org.jikesrvm.compilers.opt.ir.Operators.REF_MOVE_opcode;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.RVMArray;
+import org.jikesrvm.classloader.RVMClass;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.compilers.opt.ir.AStore;
+import org.jikesrvm.compilers.opt.ir.BasicBlock;
+import org.jikesrvm.compilers.opt.ir.IR;
+import org.jikesrvm.compilers.opt.ir.Instruction;
+import org.jikesrvm.compilers.opt.ir.Move;
+import org.jikesrvm.compilers.opt.ir.New;
+import org.jikesrvm.compilers.opt.ir.NewArray;
+import org.jikesrvm.compilers.opt.ir.PutField;
+import org.jikesrvm.compilers.opt.ir.operand.IntConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.ObjectConstantOperand;
+import org.jikesrvm.compilers.opt.ir.operand.Operand;
+import org.jikesrvm.compilers.opt.ir.operand.RegisterOperand;
+import org.jikesrvm.mm.mminterface.MemoryManager;
+import org.jikesrvm.objectmodel.ObjectModel;
+import org.jikesrvm.util.BitVector;
+
+/**
+ * Identifies reference stores whose generational write barrier can be
+ * omitted by {@link ExpandRuntimeServices}.  This is only sound when the
+ * selected plan's barrier only remembers pointers into the nursery (see
+ * {@link org.jikesrvm.mm.mminterface.Barriers#OBJECT_BARRIER_ELISION_SUPPORTED}).
+ * A barrier is elided when
+ * <ul>
+ *   <li>the value stored is {@code null}, or an object constant that is
+ *   in the boot image or immortal space, or</li>
+ *   <li>the object stored into was allocated into the nursery by this
+ *   method and no GC point lies on any path between the allocation and
+ *   the store.</li>
+ * </ul>
+ * The second case is a forward, must dataflow problem over registers
+ * holding such <em>fresh</em> objects, which covers the stores made by
+ * (inlined) constructors and initializers immediately after allocation.
+ * The analysis must be run on HIR, before allocations are expanded.
+ */
+final class WriteBarrierElision {
+
+  /** The IR being analyzed */
+  private final IR ir;
+
+  /** Registers holding fresh objects on entry to each basic block */
+  private final HashMap<BasicBlock, BitVector> fresh = new HashMap<BasicBlock, BitVector>();
+
+  /**
+   * @param ir the HIR to analyze
+   */
+  private WriteBarrierElision(IR ir) {
+    this.ir = ir;
+  }
+
+  /**
+   * Find the reference {@code PUTFIELD} and {@code REF_ASTORE} instructions
+   * in the given HIR that do not need a write barrier.
+   *
+   * @param ir the HIR to analyze
+   * @return the set of store instructions that do not need a write barrier
+   */
+  static HashSet<Instruction> findElidableStores(IR ir) {
+    WriteBarrierElision analysis = new WriteBarrierElision(ir);
+    analysis.solve();
+    return analysis.collect();
+  }
+
+  /**
+   * Iterate to a fixed point, computing the set of fresh registers on
+   * entry to each basic block.  A block whose predecessors have not yet
+   * been visited is optimistically assumed to receive every register.
+   */
+  private void solve() {
+    int numRegs = ir.regpool.getTotalNumberOfRegisters();
+    HashMap<BasicBlock, BitVector> out = new HashMap<BasicBlock, BitVector>();
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (Enumeration<BasicBlock> e = ir.forwardBlockEnumerator(); e.hasMoreElements();) {
+        BasicBlock bb = e.nextElement();
+        BitVector in = meet(bb, out, numRegs);
+        fresh.put(bb, in);
+        BitVector result = in.dup();
+        for (Enumeration<Instruction> ie = bb.forwardInstrEnumerator(); ie.hasMoreElements();) {
+          transfer(ie.nextElement(), result);
+        }
+        BitVector old = out.get(bb);
+        if (old == null || !old.equals(result)) {
+          out.put(bb, result);
+          changed = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * @param bb a basic block
+   * @param out the fresh registers on exit from each block visited so far
+   * @param numRegs the number of registers in the IR
+   * @return the registers that are fresh on entry to {@code bb}
+   */
+  private BitVector meet(BasicBlock bb, HashMap<BasicBlock, BitVector> out, int numRegs) {
+    BitVector in = new BitVector(numRegs);
+    if (bb == ir.cfg.entry() || bb.isExceptionHandlerBasicBlock()) {
+      // Nothing is fresh on method entry, nor after an exception was raised
+      return in;
+    }
+    boolean first = true;
+    for (Enumeration<BasicBlock> e = bb.getIn(); e.hasMoreElements();) {
+      BitVector predOut = out.get(e.nextElement());
+      if (predOut == null) continue;
+      if (first) {
+        in.copyBits(predOut);
+        first = false;
+      } else {
+        in.and(predOut);
+      }
+    }
+    return in;
+  }
+
+  /**
+   * Walk each block once more with the solution, collecting the stores
+   * that need no barrier.
+   *
+   * @return the set of store instructions that do not need a write barrier
+   */
+  private HashSet<Instruction> collect() {
+    HashSet<Instruction> elidable = new HashSet<Instruction>();
+    for (Enumeration<BasicBlock> e = ir.forwardBlockEnumerator(); e.hasMoreElements();) {
+      BasicBlock bb = e.nextElement();
+      BitVector live = fresh.get(bb).dup();
+      for (Enumeration<Instruction> ie = bb.forwardInstrEnumerator(); ie.hasMoreElements();) {
+        Instruction s = ie.nextElement();
+        switch (s.getOpcode()) {
+          case PUTFIELD_opcode:
+            if (isFresh(PutField.getRef(s), live) || needsNoBarrier(PutField.getValue(s))) {
+              elidable.add(s);
+            }
+            break;
+          case REF_ASTORE_opcode:
+            if (isFresh(AStore.getArray(s), live) || needsNoBarrier(AStore.getValue(s))) {
+              elidable.add(s);
+            }
+            break;
+          default:
+            break;
+        }
+        transfer(s, live);
+      }
+    }
+    return elidable;
+  }
+
+  /**
+   * Update the set of fresh registers across a single instruction.
+   *
+   * @param s the instruction
+   * @param live the fresh registers before {@code s}, updated in place
+   */
+  private void transfer(Instruction s, BitVector live) {
+    if (mayCollect(s)) {
+      live.clearAll();
+    }
+    switch (s.getOpcode()) {
+      case NEW_opcode:
+        setFresh(New.getResult(s), allocatesFresh(s), live);
+        return;
+      case NEWARRAY_opcode:
+        setFresh(NewArray.getResult(s), allocatesFresh(s), live);
+        return;
+      case REF_MOVE_opcode:
+        setFresh(Move.getResult(s), isFresh(Move.getVal(s), live), live);
+        return;
+      default:
+        for (Enumeration<Operand> e = s.getDefs(); e.hasMoreElements();) {
+          Operand def = e.nextElement();
+          if (def instanceof RegisterOperand) {
+            live.clear(def.asRegister().getRegister().getNumber());
+          }
+        }
+    }
+  }
+
+  /**
+   * @param result the register defined by an instruction
+   * @param isFresh whether the value assigned is a fresh object
+   * @param live the set of fresh registers, updated in place
+   */
+  private static void setFresh(RegisterOperand result, boolean isFresh, BitVector live) {
+    int reg = result.getRegister().getNumber();
+    if (isFresh) {
+      live.set(reg);
+    } else {
+      live.clear(reg);
+    }
+  }
+
+  /**
+   * @param op an operand
+   * @param live the set of fresh registers
+   * @return {@code true} if {@code op} is a register holding a fresh object
+   */
+  private static boolean isFresh(Operand op, BitVector live) {
+    return op instanceof RegisterOperand && live.get(op.asRegister().getRegister().getNumber());
+  }
+
+  /**
+   * Could a collection occur at the given instruction?  Checks that are
+   * lowered to a trap or an inline test only reach the runtime when they
+   * raise an exception, in which case control continues in an exception
+   * handler (where nothing is fresh) or leaves the method.  Any other GC
+   * point, call or allocation may trigger a collection.
+   *
+   * @param s the instruction
+   * @return {@code true} if a collection may occur at {@code s}
+   */
+  private static boolean mayCollect(Instruction s) {
+    if (!s.isGCPoint() && !s.isCall() && !s.isAllocation()) return false;
+    switch (s.getOpcode()) {
+      case NULL_CHECK_opcode:
+      case BOUNDS_CHECK_opcode:
+      case INT_ZERO_CHECK_opcode:
+      case LONG_ZERO_CHECK_opcode:
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Is the object allocated by a {@code NEW} or {@code NEWARRAY} instruction
+   * certain to be allocated into the nursery?  Arrays must have a constant
+   * length so that their size is known.
+   *
+   * @param s the allocation instruction
+   * @return {@code true} if the object allocated by {@code s} is fresh
+   */
+  private static boolean allocatesFresh(Instruction s) {
+    RVMMethod callSite = s.position().getMethod();
+    if (s.getOpcode() == NEW_opcode) {
+      RVMClass cls = (RVMClass) New.getType(s).getVMType();
+      return MemoryManager.allocatesIntoNursery(cls.getInstanceSize(),
+          ObjectModel.getAlignment(cls), MemoryManager.pickAllocator(cls, callSite));
+    }
+    Operand size = NewArray.getSize(s);
+    if (!(size instanceof IntConstantOperand)) return false;
+    int length = ((IntConstantOperand) size).value;
+    if (length < 0) return false;
+    RVMArray array = (RVMArray) NewArray.getType(s).getVMType();
+    return MemoryManager.allocatesIntoNursery(array.getInstanceSize(length),
+        ObjectModel.getAlignment(array), MemoryManager.pickAllocator(array, callSite));
+  }
+
+  /**
+   * Can storing the given value never create a pointer into the nursery?
+   *
+   * @param value the value being stored
+   * @return {@code true} if the value is null or an immortal constant
+   */
+  private static boolean needsNoBarrier(Operand value) {
+    if (value.isDefinitelyNull()) return true;
+    if (value instanceof ObjectConstantOperand) {
+      Object obj = ((ObjectConstantOperand) value).value;
+      // When writing the boot image every object constant is in the boot image
+      return obj == null || !VM.runningVM || MemoryManager.isImmortal(obj);
+    }
+    return false;
+  }
+}
@@ -181,7 +181,7 @@ public final class ControlFlowGraph extends SpaceEffGraph {
       // that is marked with the sortMarker, if not we simply give it a
       // number.
 
-      int sortMarker = firstNode.getSortMarker();
+      long sortMarker = firstNode.getSortMarker();
       int sortNumber = firstNode.getBackwardSortNumber() - 1;
       for (BasicBlock block = firstInCodeOrder(); block != null; block = block.nextBasicBlockInCodeOrder()) {
 
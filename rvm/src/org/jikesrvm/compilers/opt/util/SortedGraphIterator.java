@@ -55,7 +55,7 @@ public class SortedGraphIterator {
   /**
    *  A unique marker to use to mark nodes
    */
-  protected int changeMark;
+  protected long changeMark;
 
   /**
    * The current node we are processing
@@ -76,8 +76,8 @@ public class SortedGraphIterator {
     currentNode = current;
     barrier = current.getSortedNext(forward);
     this.forward = forward;
-    changeMark = SortedGraphNode.getNewSortMarker(current);
-    currentNode.setSortMarker(Integer.MIN_VALUE);
+    changeMark = SortedGraphNode.getNewSortMarker();
+    currentNode.setSortMarker(Long.MIN_VALUE);
   }
 
   /**
@@ -190,7 +190,7 @@ public class SortedGraphIterator {
    */
   private void advanceBarrier() {
     if (currentNode != null) {
-      currentNode.setSortMarker(Integer.MIN_VALUE);
+      currentNode.setSortMarker(Long.MIN_VALUE);
     }
     if ((currentNode == barrier) && (barrier != null)) {
       barrier = barrier.getSortedNext(forward);
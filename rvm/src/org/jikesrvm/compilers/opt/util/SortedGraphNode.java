@@ -92,32 +92,30 @@ public abstract class SortedGraphNode extends SpaceEffGraphNode {
   //  public int isForwardSorted(SortedGraphNode node) {
   //    return forwardSortNumber - node.forwardSortNumber;
   //  }
-  public static int getNewSortMarker(SortedGraphNode anchor) {
-    if (currentSortMarker == Integer.MAX_VALUE) {
-      SortedGraphNode current;
-      for (current = anchor; current != null; current = current.sortedPrev) {
-        current.sortMarker = Integer.MIN_VALUE;
-      }
-      for (current = anchor; current != null; current = current.sortedNext) {
-        current.sortMarker = Integer.MIN_VALUE;
-      }
-      currentSortMarker = Integer.MIN_VALUE;
-    }
+  /**
+   * Sort markers are drawn from a single counter shared by all graphs, and
+   * opt compilations may run in parallel, so the counter is synchronized.
+   * It is a long so that it never wraps around: resetting it would leave
+   * stale markers in graphs still being sorted.
+   *
+   * @return a marker not yet used in any graph
+   */
+  public static synchronized long getNewSortMarker() {
     return ++currentSortMarker;
   }
 
-  int sortMarker = Integer.MIN_VALUE;
-  private static int currentSortMarker = Integer.MIN_VALUE;
+  long sortMarker = Long.MIN_VALUE;
+  private static long currentSortMarker = Long.MIN_VALUE;
 
-  public int getSortMarker() {
+  public long getSortMarker() {
     return sortMarker;
   }
 
-  public void setSortMarker(int sortMarker) {
+  public void setSortMarker(long sortMarker) {
     this.sortMarker = sortMarker;
   }
 
-  public boolean isSortMarkedWith(int sortMarker) {
+  public boolean isSortMarkedWith(long sortMarker) {
     return (this.sortMarker >= sortMarker);
   }
 
@@ -23,7 +23,7 @@ public final class TopSort extends Stack<SortedGraphNode> {
   /**
    * the "visited" marker to use
    */
-  private int sortMarker;
+  private long sortMarker;
 
   /**
    * the next "number" to give out
@@ -56,7 +56,7 @@ public final class TopSort extends Stack<SortedGraphNode> {
 
     SortedGraphNode start = graph.startNode(forward);
     TopSort sorter = new TopSort();
-    sorter.sortMarker = SortedGraphNode.getNewSortMarker(start);
+    sorter.sortMarker = SortedGraphNode.getNewSortMarker();
     sorter.forward = forward;
     sorter.DFS(start, graph.numberOfNodes());
     return sorter.lastNumberedNode;
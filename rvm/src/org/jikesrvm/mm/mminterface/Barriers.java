@@ -17,6 +17,7 @@ import static org.jikesrvm.runtime.JavaSizeConstants.LOG_BYTES_IN_DOUBLE;
 import static org.jikesrvm.runtime.JavaSizeConstants.LOG_BYTES_IN_FLOAT;
 import static org.jikesrvm.runtime.JavaSizeConstants.LOG_BYTES_IN_LONG;
 import static org.mmtk.utility.Constants.ARRAY_ELEMENT;
+import static org.mmtk.utility.Constants.BYTES_IN_ADDRESS;
 import static org.mmtk.utility.Constants.INSTANCE_FIELD;
 import static org.mmtk.utility.Constants.LOG_BYTES_IN_ADDRESS;
 import static org.mmtk.utility.Constants.LOG_BYTES_IN_CHAR;
@@ -26,6 +27,8 @@ import static org.mmtk.utility.Constants.LOG_BYTES_IN_SHORT;
 import org.jikesrvm.VM;
 import org.jikesrvm.runtime.Magic;
 import org.jikesrvm.runtime.Memory;
+import org.mmtk.plan.Plan;
+import org.mmtk.utility.HeaderByte;
 import org.vmmagic.pragma.Entrypoint;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.Uninterruptible;
@@ -59,6 +62,30 @@ public class Barriers {
 
   /* bool byte char short int long float double */
 
+  /**
+   * Perform the copy for a primitive array bulk copy, once the barrier
+   * has been applied to the whole range, if the source and destination
+   * ranges overlap in a way the aligned copy loops cannot handle (i.e.
+   * elements move towards the end of the same array).  This lets plans
+   * with primitive barriers copy overlapping ranges in bulk rather than
+   * element by element.
+   *
+   * @param src The source array
+   * @param srcOffset The starting source offset
+   * @param dst The destination array
+   * @param dstOffset The starting destination offset
+   * @param bytes The number of bytes to be copied
+   * @return {@code true} if the copy was performed
+   */
+  @Inline
+  private static boolean primitiveBulkMove(Object src, Offset srcOffset, Object dst, Offset dstOffset, int bytes) {
+    if (src == dst && srcOffset.sLT(dstOffset.plus(BYTES_IN_ADDRESS))) {
+      Memory.memcopy(Magic.objectAsAddress(dst).plus(dstOffset), Magic.objectAsAddress(src).plus(srcOffset), bytes);
+      return true;
+    }
+    return false;
+  }
+
   /** {@code true} if the garbage collector requires write barriers on boolean putfield, arraystore or modifycheck */
   private static final boolean NEEDS_BOOLEAN_GC_WRITE_BARRIER     = Selected.Constraints.get().needsBooleanWriteBarrier();
   /** {@code true} if the VM requires write barriers on boolean putfield */
@@ -163,7 +190,8 @@ public class Barriers {
   public static void booleanBulkCopy(boolean[] src, Offset srcOffset, boolean[] dst, Offset dstOffset, int bytes) {
     if (VM.VerifyAssertions) VM._assert(BOOLEAN_BULK_COPY_SUPPORTED);
 
-    if (!Selected.Mutator.get().booleanBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes)) {
+    if (!Selected.Mutator.get().booleanBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes) &&
+        !primitiveBulkMove(src, srcOffset, dst, dstOffset, bytes)) {
       Memory.aligned8Copy(Magic.objectAsAddress(dst).plus(dstOffset), Magic.objectAsAddress(src).plus(srcOffset), bytes);
     }
   }
@@ -272,7 +300,8 @@ public class Barriers {
   public static void byteBulkCopy(byte[] src, Offset srcOffset, byte[] dst, Offset dstOffset, int bytes) {
     if (VM.VerifyAssertions) VM._assert(BYTE_BULK_COPY_SUPPORTED);
 
-    if (!Selected.Mutator.get().byteBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes)) {
+    if (!Selected.Mutator.get().byteBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes) &&
+        !primitiveBulkMove(src, srcOffset, dst, dstOffset, bytes)) {
       Memory.aligned8Copy(Magic.objectAsAddress(dst).plus(dstOffset), Magic.objectAsAddress(src).plus(srcOffset), bytes);
     }
   }
@@ -382,7 +411,8 @@ public class Barriers {
   public static void charBulkCopy(char[] src, Offset srcOffset, char[] dst, Offset dstOffset, int bytes) {
     if (VM.VerifyAssertions) VM._assert(CHAR_BULK_COPY_SUPPORTED);
 
-    if (!Selected.Mutator.get().charBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes)) {
+    if (!Selected.Mutator.get().charBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes) &&
+        !primitiveBulkMove(src, srcOffset, dst, dstOffset, bytes)) {
       Memory.aligned16Copy(Magic.objectAsAddress(dst).plus(dstOffset), Magic.objectAsAddress(src).plus(srcOffset), bytes);
     }
   }
@@ -492,7 +522,8 @@ public class Barriers {
   public static void shortBulkCopy(short[] src, Offset srcOffset, short[] dst, Offset dstOffset, int bytes) {
     if (VM.VerifyAssertions) VM._assert(SHORT_BULK_COPY_SUPPORTED);
 
-    if (!Selected.Mutator.get().shortBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes)) {
+    if (!Selected.Mutator.get().shortBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes) &&
+        !primitiveBulkMove(src, srcOffset, dst, dstOffset, bytes)) {
       Memory.aligned16Copy(Magic.objectAsAddress(dst).plus(dstOffset), Magic.objectAsAddress(src).plus(srcOffset), bytes);
     }
   }
@@ -603,7 +634,8 @@ public class Barriers {
   public static void intBulkCopy(int[] src, Offset srcOffset, int[] dst, Offset dstOffset, int bytes) {
     if (VM.VerifyAssertions) VM._assert(INT_BULK_COPY_SUPPORTED);
 
-    if (!Selected.Mutator.get().intBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes)) {
+    if (!Selected.Mutator.get().intBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes) &&
+        !primitiveBulkMove(src, srcOffset, dst, dstOffset, bytes)) {
       Memory.aligned32Copy(Magic.objectAsAddress(dst).plus(dstOffset), Magic.objectAsAddress(src).plus(srcOffset), bytes);
     }
   }
@@ -752,7 +784,8 @@ public class Barriers {
   public static void longBulkCopy(long[] src, Offset srcOffset, long[] dst, Offset dstOffset, int bytes) {
     if (VM.VerifyAssertions) VM._assert(LONG_BULK_COPY_SUPPORTED);
 
-    if (!Selected.Mutator.get().longBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes)) {
+    if (!Selected.Mutator.get().longBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes) &&
+        !primitiveBulkMove(src, srcOffset, dst, dstOffset, bytes)) {
       Memory.aligned64Copy(Magic.objectAsAddress(dst).plus(dstOffset), Magic.objectAsAddress(src).plus(srcOffset), bytes);
     }
   }
@@ -862,7 +895,8 @@ public class Barriers {
   public static void floatBulkCopy(float[] src, Offset srcOffset, float[] dst, Offset dstOffset, int bytes) {
     if (VM.VerifyAssertions) VM._assert(FLOAT_BULK_COPY_SUPPORTED);
 
-    if (!Selected.Mutator.get().floatBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes)) {
+    if (!Selected.Mutator.get().floatBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes) &&
+        !primitiveBulkMove(src, srcOffset, dst, dstOffset, bytes)) {
       Memory.aligned32Copy(Magic.objectAsAddress(dst).plus(dstOffset), Magic.objectAsAddress(src).plus(srcOffset), bytes);
     }
   }
@@ -972,7 +1006,8 @@ public class Barriers {
   public static void doubleBulkCopy(double[] src, Offset srcOffset, double[] dst, Offset dstOffset, int bytes) {
     if (VM.VerifyAssertions) VM._assert(DOUBLE_BULK_COPY_SUPPORTED);
 
-    if (!Selected.Mutator.get().doubleBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes)) {
+    if (!Selected.Mutator.get().doubleBulkCopy(ObjectReference.fromObject(src), srcOffset, ObjectReference.fromObject(dst), dstOffset, bytes) &&
+        !primitiveBulkMove(src, srcOffset, dst, dstOffset, bytes)) {
       Memory.aligned64Copy(Magic.objectAsAddress(dst).plus(dstOffset), Magic.objectAsAddress(src).plus(srcOffset), bytes);
     }
   }
@@ -1227,6 +1262,12 @@ public class Barriers {
   public static final boolean  NEEDS_OBJECT_ALOAD_BARRIER        = NEEDS_OBJECT_GC_READ_BARRIER;
   /** {@code true} if the garbage collector supports the bulk copy operation */
   public static final boolean OBJECT_BULK_COPY_SUPPORTED         = !(NEEDS_OBJECT_ASTORE_BARRIER || NEEDS_OBJECT_ALOAD_BARRIER) || Selected.Constraints.get().objectReferenceBulkCopySupported();
+  /** {@code true} if the compiler may elide reference write barriers on stores that cannot create a pointer into the nursery */
+  public static final boolean OBJECT_BARRIER_ELISION_SUPPORTED   = NEEDS_OBJECT_GC_WRITE_BARRIER && Selected.Constraints.get().writeBarrierOnlyRemembersNurseryReferences();
+  /** {@code true} if the reference putfield barrier only needs to be called when the source object's unlogged bit is set */
+  public static final boolean OBJECT_PUTFIELD_BARRIER_TESTS_UNLOGGED_BIT = NEEDS_OBJECT_PUTFIELD_BARRIER && Selected.Constraints.get().putfieldBarrierTestsUnloggedBit();
+  /** The unlogged bit within the available byte of the object header */
+  public static final byte OBJECT_UNLOGGED_BIT                = HeaderByte.UNLOGGED_BIT;
 
   /**
    * Barrier for writes of objects into fields of instances (i.e. putfield).
@@ -1261,7 +1302,9 @@ public class Barriers {
     if (NEEDS_OBJECT_GC_WRITE_BARRIER) {
       ObjectReference array = ObjectReference.fromObject(ref);
       Offset offset = Offset.fromIntZeroExtend(index << LOG_BYTES_IN_ADDRESS);
-      Selected.Mutator.get().objectReferenceWrite(array, array.toAddress().plus(offset), ObjectReference.fromObject(value), offset.toWord(), Word.zero(), ARRAY_ELEMENT);
+      // when profiling barriers, identify the array's type so stores can be attributed to it
+      Word location = Plan.GATHER_WRITE_BARRIER_PROFILE ? Word.fromIntZeroExtend(Magic.getObjectType(ref).getId()) : Word.zero();
+      Selected.Mutator.get().objectReferenceWrite(array, array.toAddress().plus(offset), ObjectReference.fromObject(value), offset.toWord(), location, ARRAY_ELEMENT);
     } else if (VM.VerifyAssertions)
       VM._assert(VM.NOT_REACHED);
   }
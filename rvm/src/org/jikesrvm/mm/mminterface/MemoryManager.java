@@ -985,6 +985,36 @@ public final class MemoryManager {
     return Selected.Plan.get().willNeverMove(ObjectReference.fromObject(obj));
   }
 
+  /**
+   * Computes the location metadata that a compiler should pass to the
+   * reference putfield write barrier at a particular store site.  This
+   * allows plans that select a barrier kind per field to have the
+   * compiler emit only the selected barrier.
+   *
+   * @param fieldId the id of the field being written
+   * @return the location metadata for the barrier call
+   */
+  @Interruptible
+  public static int fieldWriteBarrierMetadata(int fieldId) {
+    return Selected.Plan.get().fieldWriteBarrierMetadata(fieldId);
+  }
+
+  /**
+   * Determines whether an object allocated at a compile-time known
+   * allocation site is certain to be allocated into the nursery.  This
+   * allows a compiler to elide write barriers on stores into the object
+   * until the next GC point.
+   *
+   * @param bytes the size of the object in bytes
+   * @param align the alignment of the object
+   * @param allocator the allocator chosen for the site by {@link #pickAllocator}
+   * @return {@code true} if the object will be allocated into the nursery
+   */
+  @Interruptible
+  public static boolean allocatesIntoNursery(int bytes, int align, int allocator) {
+    return Selected.Plan.get().allocatesIntoNursery(bytes, align, allocator);
+  }
+
   /**
    * @param obj the object in question
    * @return whether the object is immortal
@@ -133,6 +133,13 @@ public class JavaHeader {
     return TIB_OFFSET;
   }
 
+  /**
+   * @return the offset of the byte containing the available bits.
+   */
+  public static Offset getAvailableByteOffset() {
+    return AVAILABLE_BITS_OFFSET;
+  }
+
   /**
    * What is the first word after the class?
    *
@@ -604,6 +604,14 @@ public class ObjectModel {
     return JavaHeader.readAvailableByte(o);
   }
 
+  /**
+   * @return the offset of the byte containing the available bits from
+   * an object reference (in bytes)
+   */
+  public static Offset getAvailableByteOffset() {
+    return JavaHeader.getAvailableByteOffset();
+  }
+
   /**
    * Non-atomic write of word containing available bits.
    *
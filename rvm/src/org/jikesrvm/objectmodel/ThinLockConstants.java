@@ -43,7 +43,7 @@ public final class ThinLockConstants {
   // 10 -> fat unbiasable
 
   public static final int TL_NUM_BITS_STAT = 2;
-  public static final int TL_NUM_BITS_TID = RVMThread.LOG_MAX_THREADS;
+  public static final int TL_NUM_BITS_TID = RVMThread.LOG_THIN_LOCK_THREADS;
   public static final int TL_NUM_BITS_RC = JavaHeader.NUM_THIN_LOCK_BITS - TL_NUM_BITS_TID - TL_NUM_BITS_STAT;
 
   public static final int TL_THREAD_ID_SHIFT = JavaHeader.THIN_LOCK_SHIFT;
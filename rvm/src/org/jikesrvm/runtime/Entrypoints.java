@@ -76,6 +76,10 @@ public class Entrypoints {
   public static final RVMField sysWriteLockField = getField(org.jikesrvm.VM.class, "sysWriteLock", int.class);
   public static final RVMField intBufferLockField =
       getField(org.jikesrvm.util.Services.class, "intBufferLock", int.class);
+  public static final RVMField lockInflationsField =
+      getField(org.jikesrvm.scheduler.Lock.class, "inflations", int.class);
+  public static final RVMField lockDeflationsField =
+      getField(org.jikesrvm.scheduler.Lock.class, "deflations", int.class);
   public static final RVMField dumpBufferLockField =
       getField(org.jikesrvm.util.Services.class, "dumpBufferLock", int.class);
 
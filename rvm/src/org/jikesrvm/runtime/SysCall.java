@@ -169,6 +169,9 @@ public abstract class SysCall {
   @SysCallTemplate
   public abstract int sysMProtect(Address start, Extent length, int prot);
 
+  @SysCallTemplate
+  public abstract int sysNumaBind(Address start, Extent length, int node);
+
   // threads
   @SysCallTemplate
   public abstract int sysNumProcessors();
@@ -194,6 +197,15 @@ public abstract class SysCall {
   @SysCallTemplate
   public abstract void sysThreadBind(int cpuId);
 
+  @SysCallTemplate
+  public abstract int sysNumaNodes();
+
+  @SysCallTemplate
+  public abstract int sysNumaCurrentNode();
+
+  @SysCallTemplate
+  public abstract void sysThreadBindNode(int node);
+
   @SysCallTemplate
   public abstract void sysThreadYield();
 
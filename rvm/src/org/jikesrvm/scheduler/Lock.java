@@ -19,6 +19,7 @@ import static org.jikesrvm.objectmodel.ThinLockConstants.TL_THREAD_ID_SHIFT;
 import org.jikesrvm.VM;
 import org.jikesrvm.objectmodel.ObjectModel;
 import org.jikesrvm.runtime.Callbacks;
+import org.jikesrvm.runtime.Entrypoints;
 import org.jikesrvm.runtime.Magic;
 import org.jikesrvm.util.Services;
 import org.vmmagic.pragma.Inline;
@@ -86,18 +87,21 @@ java.lang.Object#notifyAll}, and {@link java.lang.Object#wait()}.
  queue.  Currently, yield n times, then inflate.
  (This seemed to be best for the portBOB benchmark on a 12-way AIX
  SMP in the Fall of '99.)
- <LI> <EM>When should a heavy-weight lock be deflated?</EM>  Currently,
- deflation happens when the lock is unlocked with nothing on either
- of its queues.  Probably better, would be to periodically (what
- period?) examine heavy-weight locks and deflate any that havn't
- been held for a while (how long?).
+ <LI> <EM>When should a heavy-weight lock be deflated?</EM>  Until the
+ {@link LockDeflationThread} starts, deflation happens when the lock
+ is unlocked with nothing on either of its queues.  Thereafter the
+ deflation thread periodically examines the heavy-weight locks and
+ deflates any that are idle and haven't been acquired for
+ {@link #DEFLATION_AGE} sweeps, so that a contended lock is not
+ repeatedly inflated and deflated.  (Is the period right?)
  <LI> <EM>How many heavy-weight locks are needed? and how should they be
- managed?</EM>  Currently, each processor maintains a pool of free
- locks.  When a lock is inflated by a processor it is taken from
- this pool and when a lock is deflated by a processor it gets added
- to the processors pool.  Since inflation can happen on one processor
- and deflation on another, this can create an imbalance.  It might
- be worth investigating a scheme for balancing these local pools.
+ managed?</EM>  Currently, each thread maintains a small cache of free
+ locks.  When a lock is inflated by a thread it is taken from
+ this cache and when a lock is deflated by a thread it gets added
+ to the thread's cache.  Since inflation can happen on one thread
+ and deflation on another (usually the deflation thread), the caches
+ are balanced through the global free list, in batches so that the
+ global list's mutex is rarely taken.
  <LI> <EM>Is there any advantage to using the {@link SpinLock#tryLock}
  method?</EM>
  </OL>
@@ -137,6 +141,12 @@ public final class Lock {
   protected static final int MAX_LOCKS = LOCK_SPINE_SIZE * LOCK_CHUNK_SIZE;
   /** The number of chunks to allocate on startup */
   protected static final int INITIAL_CHUNKS = 1;
+  /** The maximum number of free locks in each thread's cache */
+  private static final int THREAD_FREE_LOCKS = 16;
+  /** The number of free locks moved at once between a thread's cache and the global free list */
+  private static final int FREE_LOCK_BATCH = THREAD_FREE_LOCKS / 2;
+  /** The number of deflation sweeps for which a lock must go unacquired before it is deflated */
+  private static final int DEFLATION_AGE = 2;
 
   /**
    * Should we give up or persist in the attempt to get a heavy-weight lock,
@@ -167,13 +177,22 @@ public final class Lock {
   /** the total number of free operations. */
   private static int globalLocksFreed;
 
+  // Deflation
+
+  /** Are idle locks left for the {@link LockDeflationThread} to deflate? */
+  private static boolean deferDeflation;
+  /** The number of deflation sweeps started */
+  private static int deflationEpoch;
+
   // Statistics
 
   /** Number of lock operations */
   public static int lockOperations;
   /** Number of unlock operations */
   public static int unlockOperations;
-  /** Number of deflations */
+  /** Number of inflations (always maintained) */
+  public static int inflations;
+  /** Number of deflations (always maintained) */
   public static int deflations;
 
   /****************************************************************************
@@ -194,6 +213,8 @@ public final class Lock {
   private Lock nextFreeLock;
   /** This lock's index in the lock table*/
   protected int index;
+  /** The deflation epoch in which this lock was last allocated or acquired */
+  private int lastUsedEpoch;
   /** Queue for entering the lock, guarded by mutex. */
   ThreadQueue entering;
   /** Queue for waiting on a notify, guarded by mutex as well. */
@@ -247,6 +268,7 @@ public final class Lock {
     } else if (ownerId == 0) {
       ownerId = threadId;
       recursionCount = 1;
+      lastUsedEpoch = deflationEpoch;
     } else {
       entering.enqueue(me);
       mutex.unlock();
@@ -288,8 +310,8 @@ public final class Lock {
     if (STATS) unlockOperations++;
     ownerId = 0;
     RVMThread toAwaken = entering.dequeue();
-    if (toAwaken == null && entering.isEmpty() && waiting.isEmpty()) { // heavy lock can be deflated
-      // Possible project: decide on a heuristic to control when lock should be deflated
+    if (!deferDeflation && toAwaken == null && entering.isEmpty() && waiting.isEmpty()) { // heavy lock can be deflated
+      // once the deflation thread is running, idle locks are left for it
       Offset lockOffset = Magic.getObjectType(o).getThinLockOffset();
       if (!lockOffset.isMax()) { // deflate heavy lock
         deflate(o, lockOffset);
@@ -317,12 +339,43 @@ public final class Lock {
       VM._assert(entering.isEmpty());
       VM._assert(waiting.isEmpty());
     }
-    if (STATS) deflations++;
+    Synchronization.fetchAndAdd(Magic.getJTOC(), Entrypoints.lockDeflationsField.getOffset(), 1);
     ThinLock.markDeflated(o, lockOffset, index);
     lockedObject = null;
     free(this);
   }
 
+  /**
+   * Deflates this heavy-weight lock if it is idle and has not been acquired
+   * for {@link #DEFLATION_AGE} sweeps.  Never waits for the lock's mutex:
+   * if it is held, the lock is in use.  A thread that finds the object's
+   * lock word fat but this lock deflated (or reused) on acquiring the mutex
+   * retries, as it would following a deflation on release.
+   *
+   * @param epoch the current deflation epoch
+   * @return whether the lock was deflated
+   */
+  private boolean deflateIfIdle(int epoch) {
+    if (!active || ownerId != 0 || epoch - lastUsedEpoch < DEFLATION_AGE) {
+      return false;
+    }
+    if (!mutex.tryLock()) {
+      return false;
+    }
+    boolean deflated = false;
+    Object o = lockedObject;
+    if (active && o != null && ownerId == 0 && epoch - lastUsedEpoch >= DEFLATION_AGE &&
+        entering.isEmpty() && waiting.isEmpty()) {
+      Offset lockOffset = Magic.getObjectType(o).getThinLockOffset();
+      if (!lockOffset.isMax()) {
+        deflate(o, lockOffset);
+        deflated = true;
+      }
+    }
+    mutex.unlock();
+    return deflated;
+  }
+
   /**
    * Set the owner of a lock
    * @param id The thread id of the owner.
@@ -463,8 +516,9 @@ public final class Lock {
 
   /**
    * Delivers up an unassigned heavy-weight lock.  Locks are allocated
-   * from processor specific regions or lists, so normally no synchronization
-   * is required to obtain a lock.
+   * from thread specific lists, so normally no synchronization
+   * is required to obtain a lock.  When its list is empty, a thread
+   * takes a batch of locks from the global free list.
    * <p>
    * Collector threads cannot use heavy-weight locks.
    *
@@ -475,12 +529,15 @@ public final class Lock {
     RVMThread me = RVMThread.getCurrentThread();
     if (me.cachedFreeLock != null) {
       Lock l = me.cachedFreeLock;
-      me.cachedFreeLock = null;
+      me.cachedFreeLock = l.nextFreeLock;
+      me.cachedFreeLocks--;
+      l.nextFreeLock = null;
       if (trace) {
         VM.sysWriteln("Lock.allocate: returning ",Magic.objectAsAddress(l),
                       ", a cached free lock from Thread #",me.getThreadSlot());
       }
       l.active = true;
+      l.lastUsedEpoch = deflationEpoch;
       return l;
     }
 
@@ -494,6 +551,15 @@ public final class Lock {
           l.nextFreeLock = null;
           l.active = true;
           globalFreeLocks--;
+          // refill this thread's cache while we hold the mutex
+          for (int i = 1; i < FREE_LOCK_BATCH && globalFreeLock != null; i++) {
+            Lock cached = globalFreeLock;
+            globalFreeLock = cached.nextFreeLock;
+            globalFreeLocks--;
+            cached.nextFreeLock = me.cachedFreeLock;
+            me.cachedFreeLock = cached;
+            me.cachedFreeLocks++;
+          }
         }
         lockAllocationMutex.unlock();
         if (trace && l != null) {
@@ -533,46 +599,56 @@ public final class Lock {
         }
       }
     }
+    l.lastUsedEpoch = deflationEpoch;
     return l;
   }
 
   /**
    * Recycles an unused heavy-weight lock.  Locks are deallocated
-   * to processor specific lists, so normally no synchronization
-   * is required to obtain or release a lock.
+   * to thread specific lists, so normally no synchronization
+   * is required to obtain or release a lock.  When its list is full,
+   * a thread returns a batch of locks to the global free list.
    *
    * @param l the unused lock
    */
   protected static void free(Lock l) {
     l.active = false;
     RVMThread me = RVMThread.getCurrentThread();
-    if (me.cachedFreeLock == null) {
-      if (trace) {
-        VM.sysWriteln("Lock.free: setting ",Magic.objectAsAddress(l),
-                      " as the cached free lock for Thread #",
-                      me.getThreadSlot());
-      }
-      me.cachedFreeLock = l;
-    } else {
-      if (trace) {
-        VM.sysWriteln("Lock.free: returning ",Magic.objectAsAddress(l),
-                      " to the global freelist for Thread #",
-                      me.getThreadSlot());
-      }
-      returnLock(l);
+    if (trace) {
+      VM.sysWriteln("Lock.free: caching ",Magic.objectAsAddress(l),
+                    " as a free lock for Thread #",
+                    me.getThreadSlot());
+    }
+    l.nextFreeLock = me.cachedFreeLock;
+    me.cachedFreeLock = l;
+    me.cachedFreeLocks++;
+    if (me.cachedFreeLocks > THREAD_FREE_LOCKS) {
+      returnLocks(me, FREE_LOCK_BATCH);
     }
   }
-  static void returnLock(Lock l) {
+
+  /**
+   * Returns locks from a thread's cache to the global free list.
+   *
+   * @param t the thread
+   * @param count the number of locks to return
+   */
+  static void returnLocks(RVMThread t, int count) {
     if (trace) {
-      VM.sysWriteln("Lock.returnLock: returning ",Magic.objectAsAddress(l),
-                    " to the global freelist for Thread #",
-                    RVMThread.getCurrentThreadSlot());
+      VM.sysWriteln("Lock.returnLocks: returning ",count,
+                    " locks to the global freelist for Thread #",
+                    t.getThreadSlot());
     }
     lockAllocationMutex.lock();
-    l.nextFreeLock = globalFreeLock;
-    globalFreeLock = l;
-    globalFreeLocks++;
-    globalLocksFreed++;
+    for (int i = 0; i < count && t.cachedFreeLock != null; i++) {
+      Lock l = t.cachedFreeLock;
+      t.cachedFreeLock = l.nextFreeLock;
+      t.cachedFreeLocks--;
+      l.nextFreeLock = globalFreeLock;
+      globalFreeLock = l;
+      globalFreeLocks++;
+      globalLocksFreed++;
+    }
     lockAllocationMutex.unlock();
   }
 
@@ -689,6 +765,53 @@ public final class Lock {
     return null;
   }
 
+  /****************************************************************************
+   * Deflation
+   */
+
+  /**
+   * Called by the {@link LockDeflationThread} when it starts: from now on
+   * idle locks are deflated by its sweeps rather than on release.
+   */
+  static void deferDeflation() {
+    deferDeflation = true;
+  }
+
+  /**
+   * Sweeps the lock table, deflating locks that are idle and have not been
+   * acquired for {@link #DEFLATION_AGE} sweeps.  The table is swept a
+   * chunk at a time, so that the sweep may be interrupted (by GC, for
+   * example) between chunks.
+   *
+   * @return the number of locks deflated
+   */
+  @Interruptible
+  static int deflateIdleLocks() {
+    int epoch = ++deflationEpoch;
+    int deflated = 0;
+    for (int chunk = 0; chunk < chunksAllocated; chunk++) {
+      deflated += deflateIdleLocks(chunk, epoch);
+    }
+    return deflated;
+  }
+
+  /**
+   * @param chunk the index of a chunk of the lock table
+   * @param epoch the current deflation epoch
+   * @return the number of locks in the chunk deflated
+   */
+  private static int deflateIdleLocks(int chunk, int epoch) {
+    int deflated = 0;
+    Lock[] locksInChunk = locks[chunk];
+    for (int i = 0; i < LOCK_CHUNK_SIZE; i++) {
+      Lock l = locksInChunk[i];
+      if (l != null && l.deflateIfIdle(epoch)) {
+        deflated++;
+      }
+    }
+    return deflated;
+  }
+
   /****************************************************************************
    * Statistics
    */
@@ -712,6 +835,7 @@ public final class Lock {
     public void notifyAppRunStart(String app, int value) {
       lockOperations = 0;
       unlockOperations = 0;
+      inflations = 0;
       deflations = 0;
 
       ThinLock.notifyAppRunStart("", 0);
@@ -736,6 +860,9 @@ public final class Lock {
       VM.sysWrite(unlockOperations);
       VM.sysWriteln(" unlock operations");
       VM.sysWrite("FatLocks: ");
+      VM.sysWrite(inflations);
+      VM.sysWriteln(" inflations");
+      VM.sysWrite("FatLocks: ");
       VM.sysWrite(deflations);
       VM.sysWriteln(" deflations");
 
@@ -0,0 +1,66 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.scheduler;
+
+import org.jikesrvm.VM;
+import org.vmmagic.pragma.NonMoving;
+
+/**
+ * Lock deflation thread.
+ * <p>
+ * This thread is created by RVMThread.boot() at runtime startup.
+ * Once it is running, heavy-weight locks are no longer deflated when
+ * they are released.  Instead, the thread periodically sweeps the lock
+ * table and deflates the locks that are idle and have not been acquired
+ * for a while (see {@link Lock#deflateIdleLocks()}), so that contended
+ * locks are not repeatedly inflated and deflated.
+ */
+@NonMoving
+public class LockDeflationThread extends SystemThread {
+
+  private static final int verbose = 0;
+
+  /** The interval between sweeps of the lock table, in nanoseconds */
+  private static final long PERIOD = 100L * 1000 * 1000;
+
+  public static void boot() {
+    LockDeflationThread ldt = new LockDeflationThread();
+    ldt.start();
+  }
+
+  public LockDeflationThread() {
+    super("LockDeflationThread");
+  }
+
+  /** Run the lock deflation thread (one per RVM) */
+  @Override
+  public void run() {
+    if (verbose >= 1) {
+      RVMThread.trace("LockDeflationThread ", "run routine entered");
+    }
+    Lock.deferDeflation();
+
+    try {
+      while (true) {
+        RVMThread.sleep(PERIOD);
+        int deflated = Lock.deflateIdleLocks();
+        if (verbose >= 1 && deflated > 0) {
+          VM.sysWriteln("LockDeflationThread deflated ", deflated, " locks");
+        }
+      }
+    } catch (Throwable e) {
+      VM.sysWriteln("Unexpected exception thrown in lock deflation thread: ", e.toString());
+      e.printStackTrace();
+    }
+  }
+}
@@ -672,11 +672,15 @@ public final class RVMThread extends ThreadContext {
   private int uncaughtExceptionCount = 0;
 
   /**
-   * A cached free lock. Not a free list; this will only ever contain 0 or 1
-   * locks!
+   * This thread's cache of free locks, linked through their
+   * <code>nextFreeLock</code> fields.  Holds at most a handful of locks;
+   * see {@link Lock#allocate()} and {@link Lock#free(Lock)}.
    */
   public Lock cachedFreeLock;
 
+  /** The number of locks in {@link #cachedFreeLock}'s list */
+  public int cachedFreeLocks;
+
   /*
    * Wait/notify fields
    */
@@ -1093,6 +1097,13 @@ public final class RVMThread extends ThreadContext {
    */
   public final Object /* OnStackReplacementEvent */onStackReplacementEvent;
 
+  /**
+   * Is this thread running the optimizing compiler?  Used to detect
+   * recursive opt compilation by the same thread.
+   * @see org.jikesrvm.compilers.common.RuntimeCompiler
+   */
+  public boolean optCompilationInProgress = false;
+
   /**
    * The flag indicates whether this thread is waiting for on stack replacement
    * before being rescheduled.
@@ -1154,6 +1165,20 @@ public final class RVMThread extends ThreadContext {
    */
   private int threadIdx;
 
+  /**
+   * Current index of this thread in the awakeThreads array, if the thread
+   * is not dormant. This may be changed by another thread, but only while
+   * the dormantLock is held.
+   */
+  private int awakeIdx;
+
+  /**
+   * Is the thread dormant?  A dormant thread was found blocked in native code
+   * by a handshake and has not returned to Java since, so handshakes skip it.
+   * Changed only with both the thread's monitor and the dormantLock held.
+   */
+  private boolean isDormant;
+
   /**
    * Is the system in the process of shutting down (has System.exit been called)
    */
@@ -1194,16 +1219,30 @@ public final class RVMThread extends ThreadContext {
   /** Index of thread in which "VM.boot()" runs */
   public static final int PRIMORDIAL_THREAD_INDEX = 1;
 
-  /** Maximum number of RVMThread's that we can support. */
-  public static final int LOG_MAX_THREADS = 10;
+  /**
+   * Log of the number of thread slots that fit in a thin lock word.  Threads
+   * in higher slots always use heavy-weight locks.
+   */
+  public static final int LOG_THIN_LOCK_THREADS = 10;
 
-  public static final int MAX_THREADS = 1 << LOG_MAX_THREADS;
+  public static final int THIN_LOCK_THREADS = 1 << LOG_THIN_LOCK_THREADS;
+
+  /**
+   * Maximum number of RVMThread's that we can support.  The thread tables
+   * start out with room for {@link #THIN_LOCK_THREADS} threads and are
+   * doubled in size as needed, up to this limit.
+   * <p>
+   * Soft handshakes and block/unblock for GC skip dormant threads, so their
+   * cost grows with the number of threads running Java rather than with
+   * this limit.
+   */
+  public static final int MAX_THREADS = 1 << 16;
 
   /**
    * thread array - all threads are stored in this array according to their
-   * threadSlot.
+   * threadSlot.  Replaced by a larger copy when the thread tables grow.
    */
-  public static RVMThread[] threadBySlot = new RVMThread[MAX_THREADS];
+  public static RVMThread[] threadBySlot = new RVMThread[THIN_LOCK_THREADS];
 
   /**
    * Per-thread monitors. Note that this array is statically initialized. It
@@ -1221,9 +1260,9 @@ public final class RVMThread extends ThreadContext {
    * <li>???</li>
    * </ol>
    */
-  private static final NoYieldpointsMonitor[] monitorBySlot = new NoYieldpointsMonitor[MAX_THREADS];
+  private static NoYieldpointsMonitor[] monitorBySlot = new NoYieldpointsMonitor[THIN_LOCK_THREADS];
 
-  private static final Monitor[] communicationLockBySlot = new Monitor[MAX_THREADS];
+  private static Monitor[] communicationLockBySlot = new Monitor[THIN_LOCK_THREADS];
 
   /**
    * Lock (mutex) used for creating and destroying threads as well as thread
@@ -1238,6 +1277,14 @@ public final class RVMThread extends ThreadContext {
    */
   public static NoYieldpointsMonitor acctLock;
 
+  /**
+   * Lock (mutex) used to protect the awakeThreads array, numAwakeThreads,
+   * dormantThreadsBlockedForGC and the awakeIdx and isDormant fields of
+   * RVMThread.  No other lock is acquired while this one is held, so it may
+   * be taken with a thread monitor or the acctLock held.
+   */
+  public static NoYieldpointsMonitor dormantLock;
+
   /**
    * Lock (mutex) used for servicing debug requests.
    */
@@ -1253,7 +1300,7 @@ public final class RVMThread extends ThreadContext {
    * an int array because it's accessed from code that cannot have
    * barriers.
    */
-  private static final int[] aboutToTerminate = new int[MAX_THREADS];
+  private static int[] aboutToTerminate = new int[THIN_LOCK_THREADS];
 
   /**
    * Number of threads that are about to terminate.
@@ -1263,7 +1310,7 @@ public final class RVMThread extends ThreadContext {
   /**
    * Free thread slots
    */
-  private static final int[] freeSlots = new int[MAX_THREADS];
+  private static int[] freeSlots = new int[THIN_LOCK_THREADS];
 
   /**
    * Number of free thread slots.
@@ -1290,17 +1337,37 @@ public final class RVMThread extends ThreadContext {
    * Note further that threads remain in this array even after the Java
    * libraries no longer consider the thread to be active.
    */
-  public static final RVMThread[] threads = new RVMThread[MAX_THREADS];
+  public static RVMThread[] threads = new RVMThread[THIN_LOCK_THREADS];
+
+  /**
+   * Packed and unordered array of the threads that are not dormant, which are
+   * the only ones that handshakes and block/unblock requests for GC visit.
+   * Only entries in the range 0 to numAwakeThreads-1 (inclusive) are defined.
+   * Protected by the dormantLock.
+   */
+  public static RVMThread[] awakeThreads = new RVMThread[THIN_LOCK_THREADS];
+
+  /**
+   * Number of threads in the awakeThreads array.
+   */
+  public static int numAwakeThreads;
+
+  /**
+   * Are the threads blocked for GC?  Dormant threads are not visited when
+   * the mutators are blocked for GC, so they check this when they wake.
+   * Protected by the dormantLock.
+   */
+  private static boolean dormantThreadsBlockedForGC;
 
   /**
    * Preallocated array for use in handshakes. Protected by handshakeLock.
    */
-  public static final RVMThread[] handshakeThreads = new RVMThread[MAX_THREADS];
+  public static RVMThread[] handshakeThreads = new RVMThread[THIN_LOCK_THREADS];
 
   /**
    * Preallocated array for use in debug requested. Protected by debugLock.
    */
-  public static final RVMThread[] debugThreads = new RVMThread[MAX_THREADS];
+  public static RVMThread[] debugThreads = new RVMThread[THIN_LOCK_THREADS];
 
   /**
    * Number of active threads in the system.
@@ -1447,6 +1514,7 @@ public final class RVMThread extends ThreadContext {
     outOfMemoryError = new OutOfMemoryError();
     dumpLock = new Monitor();
     acctLock = new NoYieldpointsMonitor();
+    dormantLock = new NoYieldpointsMonitor();
     debugLock = new NoYieldpointsMonitor();
     outputLock = new NoYieldpointsMonitor();
     softHandshakeDataLock = new Monitor();
@@ -1470,6 +1538,7 @@ public final class RVMThread extends ThreadContext {
     }
 
     FinalizerThread.boot();
+    LockDeflationThread.boot();
     getCurrentThread().enableYieldpoints();
     if (traceAcct) VM.sysWriteln("RVMThread booted");
   }
@@ -1553,15 +1622,20 @@ public final class RVMThread extends ThreadContext {
       threads[0] = this;
       threadIdx = 0;
       numThreads = 1;
+      awakeThreads[0] = this;
+      awakeIdx = 0;
+      numAwakeThreads = 1;
     } else {
       processAboutToTerminate();
       acctLock.lockNoHandshake();
+      while (freeSlotN == 0 && nextSlot == threadBySlot.length) {
+        acctLock.unlock();
+        growThreadTables();
+        acctLock.lockNoHandshake();
+      }
       if (freeSlotN > 0) {
         threadSlot = freeSlots[--freeSlotN];
       } else {
-        if (nextSlot == threads.length) {
-          VM.sysFail("too many threads");
-        }
         threadSlot = nextSlot++;
       }
       acctLock.unlock();
@@ -1569,9 +1643,14 @@ public final class RVMThread extends ThreadContext {
       // for it. note that if the slot doesn't have a monitor, then we
       // "own" it since we allocated it above but haven't done anything
       // with it (it's not assigned to a thread, so nobody else can touch
-      // it)
+      // it).  the monitor is allocated before the acctLock is taken, and
+      // stored with it held, so that it cannot land in tables that
+      // growThreadTables() has just replaced.
       if (monitorBySlot[threadSlot] == null) {
-        monitorBySlot[threadSlot] = new NoYieldpointsMonitor();
+        NoYieldpointsMonitor m = new NoYieldpointsMonitor();
+        acctLock.lockNoHandshake();
+        monitorBySlot[threadSlot] = m;
+        acctLock.unlock();
       }
       if (communicationLockBySlot[threadSlot] == null) {
         Monitor m = new Monitor();
@@ -1593,6 +1672,11 @@ public final class RVMThread extends ThreadContext {
       threadIdx = numThreads++;
       threads[threadIdx] = this;
 
+      dormantLock.lockNoHandshake();
+      awakeIdx = numAwakeThreads++;
+      awakeThreads[awakeIdx] = this;
+      dormantLock.unlock();
+
       acctLock.unlock();
     }
     lockingId = threadSlot << TL_THREAD_ID_SHIFT;
@@ -1602,6 +1686,73 @@ public final class RVMThread extends ThreadContext {
     }
   }
 
+  /**
+   * Double the size of the thread tables.  The new tables are allocated
+   * before any locks are taken, and installed with the handshakeLock and
+   * acctLock held, so that no handshake or thread accounting sees the
+   * tables change under it.  Code that reads the tables without holding
+   * either lock may see the old tables, which remain valid for every slot
+   * in use before the tables grew.
+   */
+  @Interruptible
+  @NoCheckStore
+  private static void growThreadTables() {
+    int capacity = threadBySlot.length;
+    if (capacity >= MAX_THREADS) {
+      VM.sysFail("too many threads");
+    }
+    int newCapacity = capacity << 1;
+    RVMThread[] newThreadBySlot = new RVMThread[newCapacity];
+    NoYieldpointsMonitor[] newMonitorBySlot = new NoYieldpointsMonitor[newCapacity];
+    Monitor[] newCommunicationLockBySlot = new Monitor[newCapacity];
+    int[] newAboutToTerminate = new int[newCapacity];
+    int[] newFreeSlots = new int[newCapacity];
+    RVMThread[] newThreads = new RVMThread[newCapacity];
+    RVMThread[] newAwakeThreads = new RVMThread[newCapacity];
+    RVMThread[] newHandshakeThreads = new RVMThread[newCapacity];
+    RVMThread[] newDebugThreads = new RVMThread[newCapacity];
+
+    // the debug snapshot must have room for every thread before there
+    // can be more threads
+    debugLock.lockNoHandshake();
+    if (debugThreads.length < newCapacity) {
+      debugThreads = newDebugThreads;
+    }
+    debugLock.unlock();
+
+    handshakeLock.lockWithHandshake();
+    acctLock.lockNoHandshake();
+    if (threadBySlot.length == capacity) {
+      for (int i = 0; i < capacity; i++) {
+        newThreadBySlot[i] = threadBySlot[i];
+        newMonitorBySlot[i] = monitorBySlot[i];
+        newCommunicationLockBySlot[i] = communicationLockBySlot[i];
+        newAboutToTerminate[i] = aboutToTerminate[i];
+        newFreeSlots[i] = freeSlots[i];
+        newThreads[i] = threads[i];
+      }
+      Magic.fence(); // make sure the copies are complete before the tables are seen
+      monitorBySlot = newMonitorBySlot;
+      communicationLockBySlot = newCommunicationLockBySlot;
+      aboutToTerminate = newAboutToTerminate;
+      freeSlots = newFreeSlots;
+      threads = newThreads;
+      dormantLock.lockNoHandshake();
+      for (int i = 0; i < numAwakeThreads; i++) {
+        newAwakeThreads[i] = awakeThreads[i];
+      }
+      awakeThreads = newAwakeThreads;
+      dormantLock.unlock();
+      handshakeThreads = newHandshakeThreads;
+      threadBySlot = newThreadBySlot;
+      if (traceAcct) {
+        VM.sysWriteln("Thread tables grown to ", newCapacity, " slots");
+      }
+    }
+    acctLock.unlock();
+    handshakeLock.unlock();
+  }
+
   /**
    * Release a thread's slot in the threads array.
    */
@@ -1621,6 +1772,14 @@ public final class RVMThread extends ThreadContext {
                    * arrangement at worst they will see it twice)
                    */
     threads[--numThreads] = null;
+    dormantLock.lockNoHandshake();
+    if (!isDormant) {
+      RVMThread replacementAwakeThread = awakeThreads[numAwakeThreads - 1];
+      awakeThreads[awakeIdx] = replacementAwakeThread;
+      replacementAwakeThread.awakeIdx = awakeIdx;
+      awakeThreads[--numAwakeThreads] = null;
+    }
+    dormantLock.unlock();
     threadBySlot[threadSlot] = null;
     freeSlots[freeSlotN++] = threadSlot;
     acctLock.unlock();
@@ -1892,6 +2051,9 @@ public final class RVMThread extends ThreadContext {
     // with stop-the-world GC!
     monitor().lockNoHandshake();
     isBlocking = true;
+    if (isDormant) {
+      markAwake();
+    }
     if (traceBlock)
       VM.sysWriteln("Thread #", threadSlot,
           " acquired lock and has notified everyone that we're blocked");
@@ -2183,6 +2345,56 @@ public final class RVMThread extends ThreadContext {
     return newState;
   }
 
+  /**
+   * Makes the thread dormant if it is blocked in native code, so that soft
+   * handshakes and block/unblock requests for GC skip it until it returns to
+   * Java.  Its mutator context is flushed first: the thread cannot run Java,
+   * and so cannot buffer anything new, before it wakes again.  A thread on
+   * the way to a safepoint, or about to terminate, is left alone.
+   * <p>
+   * Only call this method with the thread's monitor held.
+   */
+  @NoCheckStore
+  private void markDormant() {
+    int status = getExecStatus();
+    if (isDormant || isBlocking || isAboutToTerminate ||
+        (status != BLOCKED_IN_NATIVE && status != BLOCKED_IN_JNI)) {
+      return;
+    }
+    if (activeMutatorContext) {
+      flush();
+    }
+    dormantLock.lockNoHandshake();
+    RVMThread replacementThread = awakeThreads[numAwakeThreads - 1];
+    awakeThreads[awakeIdx] = replacementThread;
+    replacementThread.awakeIdx = awakeIdx;
+    awakeThreads[--numAwakeThreads] = null;
+    isDormant = true;
+    dormantLock.unlock();
+  }
+
+  /**
+   * Wakes a dormant thread on its way back to Java.  A collection that began
+   * while the thread was dormant did not ask it to block, so it blocks itself
+   * here until the collection is over.  Code patched while it was dormant did
+   * not ask it to synchronize its instruction cache, so it does that too.
+   * <p>
+   * Only call this method on the current thread, with its monitor held.
+   */
+  @NoCheckStore
+  private void markAwake() {
+    dormantLock.lockNoHandshake();
+    awakeIdx = numAwakeThreads++;
+    awakeThreads[awakeIdx] = this;
+    isDormant = false;
+    gcBlockAdapter.clearBlockRequest(this);
+    gcBlockAdapter.setBlocked(this, dormantThreadsBlockedForGC);
+    dormantLock.unlock();
+    if (VM.BuildForPowerPC) {
+      codePatchSyncRequested = true;
+    }
+  }
+
   /**
    * Attempts to block the thread, and return the state it is in after the
    * attempt. If we're blocking ourselves, this will always return IN_JAVA. If
@@ -2979,19 +3191,19 @@ public final class RVMThread extends ThreadContext {
    */
   @Unpreemptible
   private void terminateUnpreemptible() {
-    // return cached free lock
+    // return cached free locks
     if (traceAcct)
-      VM.sysWriteln("returning cached lock...");
+      VM.sysWriteln("returning cached locks...");
 
     if (cachedFreeLock != null) {
       if (Lock.trace) {
-        VM.sysWriteln("Thread #", threadSlot, ": about to free lock ",
-            Magic.objectAsAddress(cachedFreeLock));
+        VM.sysWriteln("Thread #", threadSlot, ": about to free ",
+            cachedFreeLocks, " locks");
       }
       if (VM.VerifyAssertions)
         VM._assert(cachedFreeLock.mutex.latestContender != this);
-      Lock.returnLock(cachedFreeLock);
-      cachedFreeLock = null;
+      Lock.returnLocks(this, cachedFreeLocks);
+      if (VM.VerifyAssertions) VM._assert(cachedFreeLock == null);
     }
 
     if (traceAcct)
@@ -3688,6 +3900,11 @@ public final class RVMThread extends ThreadContext {
    * <p>
    * During a soft handshake, the requesting thread waits for all mutator threads
    * (i.e. non-gc threads) to perform a requested action.
+   * <p>
+   * Dormant threads are not visited.  They flushed their mutator contexts
+   * when they became dormant, have not run Java since, and synchronize
+   * their instruction caches when they wake, so visitors must not ask
+   * anything else of threads that are blocked in native code.
    */
   @Uninterruptible
   public abstract static class SoftHandshakeVisitor {
@@ -3739,11 +3956,11 @@ public final class RVMThread extends ThreadContext {
   @NoCheckStore
   public static int snapshotHandshakeThreads(SoftHandshakeVisitor v) {
     // figure out which threads to consider
-    acctLock.lockNoHandshake(); // get a consistent view of which threads are live.
+    dormantLock.lockNoHandshake(); // get a consistent view of which threads are awake.
 
     int numToHandshake = 0;
-    for (int i = 0; i < numThreads; ++i) {
-      RVMThread t = threads[i];
+    for (int i = 0; i < numAwakeThreads; ++i) {
+      RVMThread t = awakeThreads[i];
       // We exclude the following threads from the handshake:
       // -the current thread (because we would deadlock if we included it)
       // -threads that ignore handshakes by design (e.g. the timer thread)
@@ -3755,7 +3972,7 @@ public final class RVMThread extends ThreadContext {
         handshakeThreads[numToHandshake++] = t;
       }
     }
-    acctLock.unlock();
+    dormantLock.unlock();
     return numToHandshake;
   }
 
@@ -3825,6 +4042,8 @@ public final class RVMThread extends ThreadContext {
           // A) we've set the execStatus to blocked, and
           // B) we're holding its lock.
           v.notifyStuckInNative(t);
+          // later handshakes can skip the thread until it returns to Java
+          t.markDormant();
         }
       }
       t.monitor().unlock();
@@ -3943,29 +4162,36 @@ public final class RVMThread extends ThreadContext {
    *
    * Fixpoint until there are no threads that we haven't blocked. Fixpoint is needed to
    * catch the (unlikely) case that a thread spawns another thread while we are waiting.
+   * <p>
+   * Dormant threads are not visited: they block themselves if they wake
+   * before the mutators are unblocked.
    */
   @NoCheckStore
   @Unpreemptible
   public static void blockAllMutatorsForGC() {
     RVMThread.handshakeLock.lockNoHandshake();
     while (true) {
-      // (1) Find all the threads that need to be blocked for GC
-      RVMThread.acctLock.lockNoHandshake();
+      // (1) Find all the awake threads that need to be blocked for GC
+      RVMThread.dormantLock.lockNoHandshake();
+      RVMThread.dormantThreadsBlockedForGC = true;
       int numToHandshake = 0;
-      for (int i = 0; i < RVMThread.numThreads; i++) {
-        RVMThread t = RVMThread.threads[i];
+      for (int i = 0; i < RVMThread.numAwakeThreads; i++) {
+        RVMThread t = RVMThread.awakeThreads[i];
         if (!t.isCollectorThread() && !t.ignoreHandshakesAndGC()) {
           RVMThread.handshakeThreads[numToHandshake++] = t;
         }
       }
-      RVMThread.acctLock.unlock();
+      RVMThread.dormantLock.unlock();
 
       // (2) Remove any threads that have already been blocked from the list.
       for (int i = 0; i < numToHandshake; i++) {
         RVMThread t = RVMThread.handshakeThreads[i];
         t.monitor().lockNoHandshake();
         if (t.blockedFor(RVMThread.gcBlockAdapter) || RVMThread.notRunning(t.asyncBlock(RVMThread.gcBlockAdapter))) {
-          // Already blocked or not running, remove.
+          // Already blocked or not running, remove. Threads blocked in
+          // native code also become dormant, so that later collections
+          // and handshakes skip them.
+          t.markDormant();
           RVMThread.handshakeThreads[i--] = RVMThread.handshakeThreads[--numToHandshake];
           RVMThread.handshakeThreads[numToHandshake] = null; // help GC
         }
@@ -3996,21 +4222,23 @@ public final class RVMThread extends ThreadContext {
   }
 
   /**
-   * Unblock all mutators blocked for GC.
+   * Unblock all mutators blocked for GC.  Dormant threads are not visited:
+   * they are no longer blocked for GC once they wake.
    */
   @NoCheckStore
   @Unpreemptible
   public static void unblockAllMutatorsForGC() {
     RVMThread.handshakeLock.lockNoHandshake();
-    RVMThread.acctLock.lockNoHandshake();
+    RVMThread.dormantLock.lockNoHandshake();
+    RVMThread.dormantThreadsBlockedForGC = false;
     int numToHandshake = 0;
-    for (int i = 0; i < RVMThread.numThreads; i++) {
-      RVMThread t = RVMThread.threads[i];
+    for (int i = 0; i < RVMThread.numAwakeThreads; i++) {
+      RVMThread t = RVMThread.awakeThreads[i];
       if (!t.isCollectorThread() && !t.ignoreHandshakesAndGC()) {
         RVMThread.handshakeThreads[numToHandshake++] = t;
       }
     }
-    RVMThread.acctLock.unlock();
+    RVMThread.dormantLock.unlock();
     for (int i = 0; i < numToHandshake; i++) {
       RVMThread.handshakeThreads[i].unblock(RVMThread.gcBlockAdapter);
       RVMThread.handshakeThreads[i] = null; // Help GC
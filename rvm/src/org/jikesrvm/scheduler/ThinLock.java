@@ -28,7 +28,11 @@ import static org.jikesrvm.objectmodel.ThinLockConstants.TL_THREAD_ID_SHIFT;
 import static org.jikesrvm.objectmodel.ThinLockConstants.TL_UNLOCK_MASK;
 
 import org.jikesrvm.VM;
+import org.jikesrvm.classloader.RVMClass;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.runtime.Entrypoints;
 import org.jikesrvm.runtime.Magic;
+import org.jikesrvm.runtime.Time;
 import org.jikesrvm.util.Services;
 import org.vmmagic.pragma.Entrypoint;
 import org.vmmagic.pragma.Inline;
@@ -50,6 +54,31 @@ public final class ThinLock {
 
   private static final boolean ENABLE_BIASED_LOCKING = true;
 
+  /**
+   * The number of biases on instances of a class revoked before the class
+   * starts a new bias epoch, in which biases on unlocked instances are
+   * handed over to the revoking thread rather than removed
+   */
+  private static final int BULK_REBIAS_THRESHOLD = 20;
+  /**
+   * The number of biases on instances of a class revoked within
+   * {@link #BIAS_DECAY_TIME} of the start of its bias epoch before
+   * biasing is disabled for the class
+   */
+  private static final int BULK_REVOKE_THRESHOLD = 40;
+  /**
+   * The time (in nanoseconds) after which a class's revocation and hand-off
+   * rates are considered to have decayed
+   */
+  private static final long BIAS_DECAY_TIME = 25L * 1000 * 1000 * 1000;
+  /**
+   * The number of biases on instances of a class handed over to another
+   * thread within {@link #BIAS_DECAY_TIME} of the start of its bias epoch
+   * before the class stops handing biases over for the rest of the epoch.
+   * Each hand-off costs a pair handshake, just like a revocation.
+   */
+  private static final int BIAS_HAND_OFF_LIMIT = 100;
+
   @Inline
   @NoNullCheck
   @Unpreemptible
@@ -65,7 +94,7 @@ public final class ThinLock {
         Magic.combinedLoadBarrier();
         return;
       }
-    } else if (id.EQ(TL_STAT_THIN)) {
+    } else if (id.EQ(TL_STAT_THIN) && tid.LE(TL_THREAD_ID_MASK)) {
       // lock is thin and not held by anyone
       if (Magic.attemptWord(o, lockOffset, old, old.or(tid))) {
         if (!VM.MagicAttemptImpliesStoreLoadBarrier) Magic.fence();
@@ -89,7 +118,8 @@ public final class ThinLock {
         Magic.fence();
         return;
       }
-    } else if (old.xor(tid).rshl(TL_LOCK_COUNT_SHIFT).EQ(TL_STAT_THIN.rshl(TL_LOCK_COUNT_SHIFT))) {
+    } else if (tid.LE(TL_THREAD_ID_MASK) &&
+               old.xor(tid).rshl(TL_LOCK_COUNT_SHIFT).EQ(TL_STAT_THIN.rshl(TL_LOCK_COUNT_SHIFT))) {
       Magic.combinedLoadBarrier();
       if (Magic.attemptWord(o, lockOffset, old, old.and(TL_UNLOCK_MASK).or(TL_STAT_THIN))) {
         if (!VM.MagicAttemptImpliesStoreLoadBarrier) Magic.fence();
@@ -106,6 +136,11 @@ public final class ThinLock {
     if (STATS) fastLocks++;
 
     Word threadId = Word.fromIntZeroExtend(RVMThread.getCurrentThread().getLockingId());
+    if (threadId.GT(TL_THREAD_ID_MASK)) {
+      // our thread slot does not fit in a thin lock word
+      lockFat(o, lockOffset);
+      return;
+    }
 
     for (int cnt = 0;;cnt++) {
       Word old = Magic.getWordAtOffset(o, lockOffset);
@@ -114,7 +149,7 @@ public final class ThinLock {
       if (stat.EQ(TL_STAT_BIASABLE)) {
         Word id = old.and(TL_THREAD_ID_MASK);
         if (id.isZero()) {
-          if (ENABLE_BIASED_LOCKING) {
+          if (ENABLE_BIASED_LOCKING && biasingAllowed(o)) {
             // lock is unbiased, bias it in our favor and grab it
             if (Synchronization.tryCompareAndSwap(
                   o, lockOffset,
@@ -144,8 +179,19 @@ public final class ThinLock {
           } else {
             tryToInflate = true;
           }
+        } else if (rebiasOnRevocation(o) && old.and(TL_LOCK_COUNT_MASK).isZero()) {
+          // lock is biased to someone else but not held: hand the bias over
+          // to us and grab it
+          if (casFromBiased(o, lockOffset, old,
+                            old.and(TL_THREAD_ID_MASK.not()).or(threadId).plus(TL_LOCK_COUNT_UNIT), cnt)) {
+            // a hand-off is not a revocation, but it is rate limited
+            biasHandedOff(o);
+            if (!VM.MagicAttemptImpliesStoreLoadBarrier) Magic.fence();
+            return;
+          }
         } else {
           if (casFromBiased(o, lockOffset, old, biasBitsToThinBits(old), cnt)) {
+            biasRevoked(o);
             continue; // don't spin, since it's thin now
           }
         }
@@ -195,6 +241,34 @@ public final class ThinLock {
     }
   }
 
+  /**
+   * Locks an object with a heavy-weight lock, inflating its lock if
+   * need be.  Used by threads whose slots are beyond
+   * {@link RVMThread#THIN_LOCK_THREADS}, which cannot own thin or
+   * biased locks.
+   *
+   * @param o the object to lock
+   * @param lockOffset the offset of the thin lock word in the object
+   */
+  @NoInline
+  @NoNullCheck
+  @Unpreemptible
+  private static void lockFat(Object o, Offset lockOffset) {
+    if (STATS) slowLocks++;
+    while (true) {
+      Word old = Magic.getWordAtOffset(o, lockOffset);
+      if (isFat(old)) {
+        if (Lock.getLock(getLockIndex(old)).lockHeavy(o)) {
+          return;
+        }
+        Magic.combinedLoadBarrier();
+        RVMThread.yieldNoHandshake();
+      } else if (inflateAndLock(o, lockOffset)) {
+        return;
+      }
+    }
+  }
+
   @NoInline
   @NoNullCheck
   @Unpreemptible
@@ -475,6 +549,7 @@ public final class ThinLock {
       if (VM.VerifyAssertions) VM._assert(l != null);
       if (attemptToMarkInflated(
             o, lockOffset, bits, l.index, cnt)) {
+        Synchronization.fetchAndAdd(Magic.getJTOC(), Entrypoints.lockInflationsField.getOffset(), 1);
         l.setLockedObject(o);
         l.setOwnerId(getLockOwner(bits));
         if (l.getOwnerId() != 0) {
@@ -488,6 +563,103 @@ public final class ThinLock {
     }
   }
 
+  /**
+   * @param o an object
+   * @return the class whose biasing policy governs the object's lock, or
+   *         {@code null} if the object is an array
+   */
+  @Inline
+  @Uninterruptible
+  private static RVMClass biasPolicyClass(Object o) {
+    RVMType type = Magic.getObjectType(o);
+    return type.isClassType() ? type.asClass() : null;
+  }
+
+  /**
+   * @param o an object whose lock is unbiased
+   * @return whether the lock may be biased towards the thread locking it
+   */
+  @Inline
+  @Uninterruptible
+  private static boolean biasingAllowed(Object o) {
+    RVMClass cls = biasPolicyClass(o);
+    return cls == null || !cls.isBiasingDisabled();
+  }
+
+  /**
+   * @param o an object whose lock is biased towards another thread
+   * @return whether the bias should be handed over to the current thread,
+   *         rather than removed, if the lock is not held
+   */
+  @Inline
+  @Uninterruptible
+  private static boolean rebiasOnRevocation(Object o) {
+    RVMClass cls = biasPolicyClass(o);
+    return cls != null && cls.getBiasEpoch() > 0 && !cls.isBiasingDisabled() &&
+      cls.getBiasHandOffs() < BIAS_HAND_OFF_LIMIT;
+  }
+
+  /**
+   * Applies the per-class rate limit on hand-offs following the hand-off
+   * of a bias on an object to the current thread.  Once
+   * {@link #BIAS_HAND_OFF_LIMIT} biases have been handed over in a bias
+   * epoch, the class starts a fresh epoch if the epoch is older than
+   * {@link #BIAS_DECAY_TIME}.  Otherwise biases are revoked, leaving thin
+   * locks, for the rest of the epoch, and those revocations count towards
+   * disabling biasing for the class.
+   *
+   * @param o the object whose bias was handed over
+   */
+  @NoInline
+  @Unpreemptible
+  private static void biasHandedOff(Object o) {
+    if (STATS) rebiases++;
+    RVMClass cls = biasPolicyClass(o);
+    if (cls.recordBiasHandOff() >= BIAS_HAND_OFF_LIMIT) {
+      long now = Time.nanoTime();
+      if (now - cls.getBiasEpochStart() >= BIAS_DECAY_TIME) {
+        // hand-offs are rare enough: start counting afresh
+        if (STATS) bulkRebiases++;
+        cls.startBiasEpoch(now, BULK_REBIAS_THRESHOLD);
+      }
+    }
+  }
+
+  /**
+   * Applies the per-class biasing policy following the revocation of a
+   * bias on an object, leaving its lock thin.  Biases handed over to
+   * another thread in a bias epoch are not revocations, and do not count.
+   * After {@link #BULK_REBIAS_THRESHOLD} revocations the class starts a
+   * new bias epoch, in which biases on unlocked instances are handed over
+   * rather than removed, up to {@link #BIAS_HAND_OFF_LIMIT} of them; if
+   * the revocations reach {@link #BULK_REVOKE_THRESHOLD} within
+   * {@link #BIAS_DECAY_TIME} of the start of the epoch, biasing is
+   * disabled for the class.
+   *
+   * @param o the object whose bias was revoked
+   */
+  @NoInline
+  @Unpreemptible
+  private static void biasRevoked(Object o) {
+    RVMClass cls = biasPolicyClass(o);
+    if (cls == null || cls.isBiasingDisabled()) return;
+    int revocations = cls.recordBiasRevocation();
+    if (revocations == BULK_REBIAS_THRESHOLD) {
+      if (STATS) bulkRebiases++;
+      cls.startBiasEpoch(Time.nanoTime(), revocations);
+    } else if (revocations >= BULK_REVOKE_THRESHOLD) {
+      long now = Time.nanoTime();
+      if (now - cls.getBiasEpochStart() < BIAS_DECAY_TIME) {
+        if (STATS) bulkRevocations++;
+        cls.disableBiasing();
+      } else {
+        // revocations are rare enough: start counting afresh
+        if (STATS) bulkRebiases++;
+        cls.startBiasEpoch(now, BULK_REBIAS_THRESHOLD);
+      }
+    }
+  }
+
   @Inline
   @Uninterruptible
   private static Word biasBitsToThinBits(Word bits) {
@@ -621,11 +793,17 @@ public final class ThinLock {
 
   static int fastLocks;
   static int slowLocks;
+  static int rebiases;
+  static int bulkRebiases;
+  static int bulkRevocations;
 
   static void notifyAppRunStart(String app, int value) {
     if (!STATS) return;
     fastLocks = 0;
     slowLocks = 0;
+    rebiases = 0;
+    bulkRebiases = 0;
+    bulkRevocations = 0;
   }
 
   static void notifyExit(int value) {
@@ -638,6 +816,15 @@ public final class ThinLock {
     VM.sysWrite(slowLocks);
     VM.sysWrite(" slow locks");
     Services.percentage(slowLocks, value, "all lock operations");
+    VM.sysWrite("ThinLocks: ");
+    VM.sysWrite(rebiases);
+    VM.sysWriteln(" rebiases");
+    VM.sysWrite("ThinLocks: ");
+    VM.sysWrite(bulkRebiases);
+    VM.sysWriteln(" bulk rebiases");
+    VM.sysWrite("ThinLocks: ");
+    VM.sysWrite(bulkRevocations);
+    VM.sysWriteln(" bulk revocations");
   }
 
 }
@@ -0,0 +1,247 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Write barrier microbenchmarks.  Each kernel performs a fixed number of
+ * reference stores of one kind, so that the cost of each generational
+ * barrier can be compared on one build, selecting the barrier with
+ * <code>-X:gc:genBarrier</code>.<p>
+ *
+ * Mature data is allocated before the measurement and promoted by the
+ * full heap collection performed by the MMTk harness.  Young objects are
+ * drawn from a small pool that is reallocated every epoch, so nursery
+ * collections (and so remembered set processing) happen at a steady rate
+ * during the measurement.<p>
+ *
+ * Usage: <code>BarrierMicro kernel [epochs]</code>, where kernel is one of
+ * the names in {@link #KERNELS}, or <code>all</code>.
+ */
+class BarrierMicro {
+
+  /** The kernels, in the order they are run by <code>all</code> */
+  static final String[] KERNELS = {
+    "putfield-old-young", "putfield-hot", "putfield-young-old", "putfield-old-old",
+    "aastore", "arraycopy", "cas", "mix-10", "mix-50", "mix-90"
+  };
+
+  static final int OLD_NODES = 1 << 16;
+  static final int OLD_MASK = OLD_NODES - 1;
+  static final int OLD_ARRAY = 1 << 18;
+  static final int OLD_ARRAY_MASK = OLD_ARRAY - 1;
+  static final int YOUNG_NODES = 1 << 10;
+  static final int YOUNG_MASK = YOUNG_NODES - 1;
+  static final int COPY_LENGTH = 256;
+  static final int STORES_PER_EPOCH = 1 << 16;
+  static final int WARMUP_EPOCHS = 50;
+  static final int DEFAULT_EPOCHS = 2000;
+
+  static final class Node {
+    Object payload;
+    Node next;
+    int value;
+  }
+
+  /* Mature data */
+  static Node[] old;
+  static Object[] oldArray;
+  static AtomicReference<Object>[] oldRefs;
+
+  /* Young data, reallocated every epoch */
+  static Node[] young;
+  static Object[] youngArray;
+
+  public static void main(String[] args) {
+    if (args.length == 0) {
+      System.out.println("Usage: BarrierMicro kernel [epochs]");
+      System.exit(1);
+    }
+    int epochs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_EPOCHS;
+    setup();
+    if (args[0].equals("all")) {
+      for (String kernel : KERNELS) {
+        measure(kernel, epochs, false);
+      }
+    } else {
+      measure(args[0], epochs, true);
+    }
+    System.out.println("ALL TESTS PASSED");
+  }
+
+  @SuppressWarnings("unchecked")
+  static void setup() {
+    old = new Node[OLD_NODES];
+    oldRefs = new AtomicReference[OLD_NODES];
+    for (int i = 0; i < OLD_NODES; i++) {
+      old[i] = new Node();
+      oldRefs[i] = new AtomicReference<Object>();
+    }
+    oldArray = new Object[OLD_ARRAY];
+    refreshYoung();
+  }
+
+  static void refreshYoung() {
+    young = new Node[YOUNG_NODES];
+    for (int i = 0; i < YOUNG_NODES; i++) {
+      young[i] = new Node();
+    }
+    youngArray = new Object[COPY_LENGTH];
+    for (int i = 0; i < COPY_LENGTH; i++) {
+      youngArray[i] = young[i & YOUNG_MASK];
+    }
+  }
+
+  /**
+   * Run a kernel, warming it up first, and report the store rate.  When
+   * <code>harness</code> is set the measurement is bracketed by the MMTk
+   * harness, so the MMTk statistics cover exactly the measured epochs.
+   */
+  static void measure(String kernel, int epochs, boolean harness) {
+    run(kernel, WARMUP_EPOCHS);
+    if (harness) org.mmtk.plan.Plan.harnessBegin(); else System.gc();
+    long start = System.nanoTime();
+    int check = run(kernel, epochs);
+    long elapsed = System.nanoTime() - start;
+    if (harness) org.mmtk.plan.Plan.harnessEnd();
+    long stores = (long) epochs * STORES_PER_EPOCH;
+    double rate = stores / (elapsed / 1000000.0);
+    System.out.println("BarrierMicro " + kernel + ": " + stores + " stores in " + (elapsed / 1000000) +
+        " ms, " + ((long) rate) + " stores/ms (check " + check + ")");
+  }
+
+  static int run(String kernel, int epochs) {
+    if (kernel.equals("putfield-old-young")) return putfieldOldYoung(epochs);
+    if (kernel.equals("putfield-hot")) return putfieldHot(epochs);
+    if (kernel.equals("putfield-young-old")) return putfieldYoungOld(epochs);
+    if (kernel.equals("putfield-old-old")) return putfieldOldOld(epochs);
+    if (kernel.equals("aastore")) return aastore(epochs);
+    if (kernel.equals("arraycopy")) return arraycopy(epochs);
+    if (kernel.equals("cas")) return cas(epochs);
+    if (kernel.startsWith("mix-")) return mix(epochs, Integer.parseInt(kernel.substring(4)));
+    throw new IllegalArgumentException("Unknown kernel " + kernel);
+  }
+
+  /** Store young objects into the fields of many old objects */
+  static int putfieldOldYoung(int epochs) {
+    for (int e = 0; e < epochs; e++) {
+      refreshYoung();
+      Node[] o = old, y = young;
+      for (int i = 0; i < STORES_PER_EPOCH; i++) {
+        o[(i * 17) & OLD_MASK].payload = y[i & YOUNG_MASK];
+      }
+    }
+    return old[0].payload == null ? 0 : 1;
+  }
+
+  /** Repeatedly store young objects into the same few old fields */
+  static int putfieldHot(int epochs) {
+    for (int e = 0; e < epochs; e++) {
+      refreshYoung();
+      Node[] y = young;
+      Node a = old[0], b = old[1];
+      for (int i = 0; i < STORES_PER_EPOCH; i += 2) {
+        a.payload = y[i & YOUNG_MASK];
+        b.next = y[(i + 1) & YOUNG_MASK];
+      }
+    }
+    return old[1].next == null ? 0 : 1;
+  }
+
+  /** Store old objects into the fields of young objects */
+  static int putfieldYoungOld(int epochs) {
+    for (int e = 0; e < epochs; e++) {
+      refreshYoung();
+      Node[] o = old, y = young;
+      for (int i = 0; i < STORES_PER_EPOCH; i++) {
+        y[i & YOUNG_MASK].payload = o[(i * 17) & OLD_MASK];
+      }
+    }
+    return young[0].payload == null ? 0 : 1;
+  }
+
+  /** Store old objects into the fields of old objects */
+  static int putfieldOldOld(int epochs) {
+    for (int e = 0; e < epochs; e++) {
+      refreshYoung();
+      Node[] o = old;
+      for (int i = 0; i < STORES_PER_EPOCH; i++) {
+        o[(i * 17) & OLD_MASK].next = o[(i * 31) & OLD_MASK];
+      }
+    }
+    return old[0].next == null ? 0 : 1;
+  }
+
+  /** Sweep through an old array storing young objects */
+  static int aastore(int epochs) {
+    int base = 0;
+    for (int e = 0; e < epochs; e++) {
+      refreshYoung();
+      Object[] a = oldArray;
+      Node[] y = young;
+      for (int i = 0; i < STORES_PER_EPOCH; i++) {
+        a[(base + i) & OLD_ARRAY_MASK] = y[i & YOUNG_MASK];
+      }
+      base += STORES_PER_EPOCH;
+    }
+    return oldArray[0] == null ? 0 : 1;
+  }
+
+  /** Copy ranges of young objects into an old array */
+  static int arraycopy(int epochs) {
+    int base = 0;
+    for (int e = 0; e < epochs; e++) {
+      refreshYoung();
+      for (int i = 0; i < STORES_PER_EPOCH; i += COPY_LENGTH) {
+        System.arraycopy(youngArray, 0, oldArray, base & OLD_ARRAY_MASK, COPY_LENGTH);
+        base += COPY_LENGTH;
+      }
+    }
+    return oldArray[0] == null ? 0 : 1;
+  }
+
+  /** Swap young objects into old atomic references */
+  static int cas(int epochs) {
+    int failures = 0;
+    for (int e = 0; e < epochs; e++) {
+      refreshYoung();
+      AtomicReference<Object>[] r = oldRefs;
+      Node[] y = young;
+      for (int i = 0; i < STORES_PER_EPOCH; i++) {
+        AtomicReference<Object> ref = r[(i * 17) & OLD_MASK];
+        if (!ref.compareAndSet(ref.get(), y[i & YOUNG_MASK])) failures++;
+      }
+    }
+    return failures;
+  }
+
+  /**
+   * Mix old-to-young and young-to-old putfields.
+   *
+   * @param percentOldToYoung The percentage of stores that are old-to-young
+   */
+  static int mix(int epochs, int percentOldToYoung) {
+    for (int e = 0; e < epochs; e++) {
+      refreshYoung();
+      Node[] o = old, y = young;
+      for (int i = 0; i < STORES_PER_EPOCH; i++) {
+        if ((i % 100) < percentOldToYoung) {
+          o[(i * 17) & OLD_MASK].payload = y[i & YOUNG_MASK];
+        } else {
+          y[i & YOUNG_MASK].payload = o[(i * 17) & OLD_MASK];
+        }
+      }
+    }
+    return old[0].payload == null ? 0 : 1;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package test.org.jikesrvm.basic.core.threads;
+
+import org.jikesrvm.scheduler.RVMThread;
+
+/**
+ * Test more threads than fit in a thin lock word.
+ * <p/>
+ * The threads in the highest slots lock the shared object through heavy-weight
+ * locks only.  Collections happen while all of the threads wait, so the first
+ * one makes them dormant and the second one skips them.
+ */
+class TestManyThreads {
+  private static final int COUNT = RVMThread.THIN_LOCK_THREADS + 64;
+
+  private static final Object lock = new Object();
+  private static int started;
+  private static int finished;
+  private static int highSlots;
+  private static boolean released;
+
+  public static void main(String[] args) throws InterruptedException {
+    Thread[] threads = new Thread[COUNT];
+    for (int i = 0; i < COUNT; ++i) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          work();
+        }
+      };
+      threads[i].start();
+    }
+
+    // wait for every thread to be waiting on the lock
+    synchronized (lock) {
+      while (started < COUNT) {
+        lock.wait();
+      }
+    }
+
+    System.gc();
+    System.gc();
+
+    // let the threads finish
+    synchronized (lock) {
+      released = true;
+      lock.notifyAll();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    System.out.println("threads finished: " + finished);
+    System.out.println("slots beyond thin locks: " + (highSlots > 0));
+    System.out.println("bye");
+  }
+
+  private static void work() {
+    boolean highSlot = RVMThread.getCurrentThread().getThreadSlot() >= RVMThread.THIN_LOCK_THREADS;
+    synchronized (lock) {
+      if (highSlot) {
+        highSlots++;
+      }
+      if (++started == COUNT) {
+        lock.notifyAll();
+      }
+      while (!released) {
+        try {
+          lock.wait();
+        } catch (InterruptedException e) {
+          // ignore
+        }
+      }
+      finished++;
+    }
+  }
+}
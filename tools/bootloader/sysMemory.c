@@ -17,6 +17,10 @@
 #include <errno.h> // error numbers
 #include <string.h> // memcpy & memmove
 #include <sys/mman.h> // mmap
+#ifdef RVM_FOR_LINUX
+#  include <sys/syscall.h> // SYS_mbind
+#  include <unistd.h> // syscall
+#endif
 
 int inRVMAddressSpace(Address a);
 
@@ -257,6 +261,34 @@ EXTERNAL int sysMProtect(char *start, size_t length, int prot)
   return mprotect(start, length, prot);
 }
 
+/**
+ * Prefer a NUMA node for the physical pages of a region, migrating any
+ * pages already touched.  Only Linux is supported.
+ * Taken:     start address (Java ADDRESS)
+ *            length of region (Java EXTENT)
+ *            node to prefer (Java int)
+ * Returned:  0 (success) or -1 (failure) (Java int)
+ */
+EXTERNAL int sysNumaBind(char *start, size_t length, int node)
+{
+  TRACE_PRINTF("%s: sysNumaBind %p %zu %d\n", Me, start, length, node);
+#if defined(RVM_FOR_LINUX) && defined(SYS_mbind)
+  /* MPOL_PREFERRED and MPOL_MF_MOVE from <numaif.h>, which need not be installed */
+  const int mpolPreferred = 1;
+  const unsigned mpolMfMove = 1 << 1;
+  const int bitsInLong = 8 * sizeof(unsigned long);
+  unsigned long nodemask[256 / (8 * sizeof(unsigned long))];
+  if (node < 0 || node >= 256) {
+    return -1;
+  }
+  memset(nodemask, 0, sizeof(nodemask));
+  nodemask[node / bitsInLong] |= 1UL << (node % bitsInLong);
+  return syscall(SYS_mbind, start, length, mpolPreferred, nodemask, 256 + 1, mpolMfMove) == 0 ? 0 : -1;
+#else
+  return -1;
+#endif
+}
+
 /** Memory to memory copy. Memory regions must not overlap. */
 EXTERNAL void sysCopy(void *dst, const void *src, Extent cnt)
 {
@@ -24,6 +24,7 @@
 #ifdef RVM_FOR_LINUX
 #  include <sys/sysinfo.h> // get_nprocs
 #  include <sys/ucontext.h>
+#  include <sys/syscall.h> // SYS_getcpu
 #endif // def RVM_FOR_LINUX
 
 /** Constant to show that the newly created thread is a child */
@@ -474,6 +475,66 @@ EXTERNAL void sysThreadBind(int cpuId)
 #endif
 }
 
+/**
+ * Number of NUMA nodes, or 1 if the machine is not NUMA or the
+ * topology cannot be discovered.
+ */
+EXTERNAL int sysNumaNodes()
+{
+  int nodes = 1;
+  TRACE_PRINTF("%s: sysNumaNodes\n", Me);
+#ifdef RVM_FOR_LINUX
+  char path[64];
+  for (;;) {
+    snprintf(path, sizeof(path), "/sys/devices/system/node/node%d", nodes);
+    if (access(path, F_OK) != 0)
+      break;
+    nodes++;
+  }
+#endif
+  return nodes;
+}
+
+/**
+ * NUMA node of the CPU on which the calling thread is running, or 0 if
+ * this cannot be determined.
+ */
+EXTERNAL int sysNumaCurrentNode()
+{
+#if defined(RVM_FOR_LINUX) && defined(SYS_getcpu)
+  unsigned cpu, node;
+  if (syscall(SYS_getcpu, &cpu, &node, NULL) == 0)
+    return node;
+#endif
+  return 0;
+}
+
+/**
+ * Bind the calling thread to the CPUs of a NUMA node.  Does nothing if
+ * the node's CPUs cannot be discovered.
+ */
+EXTERNAL void sysThreadBindNode(int node)
+{
+  TRACE_PRINTF("%s: sysThreadBindNode %d\n", Me, node);
+#ifndef RVM_FOR_HARMONY
+#ifdef RVM_FOR_LINUX
+  char path[96];
+  int cpuId, found = 0;
+  cpu_set_t cpuset;
+  CPU_ZERO(&cpuset);
+  for (cpuId = 0; cpuId < CPU_SETSIZE; cpuId++) {
+    snprintf(path, sizeof(path), "/sys/devices/system/node/node%d/cpu%d", node, cpuId);
+    if (access(path, F_OK) == 0) {
+      CPU_SET(cpuId, &cpuset);
+      found = 1;
+    }
+  }
+  if (found)
+    pthread_setaffinity_np(pthread_self(), sizeof(cpuset), &cpuset);
+#endif
+#endif
+}
+
 /**
  * Function called by pthread startup
  *